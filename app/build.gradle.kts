@@ -83,5 +83,12 @@ dependencies {
     implementation("com.github.bumptech.glide:glide:4.13.2")
     annotationProcessor("com.github.bumptech.glide:compiler:4.13.2")
 
+    // Room
+    implementation("androidx.room:room-runtime:2.5.2")
+    annotationProcessor("androidx.room:room-compiler:2.5.2")
+
+    // WorkManager
+    implementation("androidx.work:work-runtime:2.8.1")
+
 
 }
\ No newline at end of file
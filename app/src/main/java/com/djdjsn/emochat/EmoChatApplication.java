@@ -4,6 +4,13 @@ import android.app.Application;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 
+import com.djdjsn.emochat.data.AppState;
+import com.djdjsn.emochat.data.PreferencesData;
+import com.djdjsn.emochat.services.ChatService;
+
+import javax.inject.Inject;
+
+import dagger.Lazy;
 import dagger.hilt.android.HiltAndroidApp;
 
 @HiltAndroidApp
@@ -16,12 +23,25 @@ public class EmoChatApplication extends Application {
     public static final String CHANNEL_NAME_CHAT = "chat";
     public static final String CHANNEL_ID_CHAT = "com.djdjsn.emochat.chat";
 
+    @Inject
+    AppState appState;
+    @Inject
+    Lazy<PreferencesData> preferencesData;  // 화면 프로세스에서만 만들어 프레퍼런스를 미리 읽어둔다 (:sync 에서는 만들지 않음)
+
     @Override
     public void onCreate() {
         super.onCreate();
 
         // 앱이 실행될 때 노티피케이션 채널을 등록한다
         createNotificationChannels();
+
+        // 화면 프로세스에서만 채팅방 표시 여부가 바뀔 때 알림 감시 서비스(:sync 프로세스)에 전달한다
+        if (getPackageName().equals(getProcessName())) {
+            appState.addOnInChatChangeListener(isInChat -> ChatService.setInChat(this, isInChat));
+
+            // 화면에서 처음 접근하기 전에 백그라운드에서 프레퍼런스를 읽기 시작한다
+            preferencesData.get();
+        }
     }
 
     private void createNotificationChannels() {
@@ -0,0 +1,74 @@
+package com.djdjsn.emochat.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class AppState {
+    // 앱이 실행되는 동안에만 필요한 상태를 메모리에 보관하는 클래스 (디스크에 저장하지 않음)
+    // 여러 스레드에서 읽을 수 있고, 값이 바뀌면 메인 스레드에서 한 번에 모아서 리스너에게 알린다
+
+    public interface OnInChatChangeListener {
+        void onInChatChanged(boolean isInChat);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<OnInChatChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean isInChat;          // 채팅방 화면이 표시 중인지 여부
+    private boolean dispatchedInChat;           // 마지막으로 리스너에게 알린 값
+    private boolean isDispatchScheduled;
+
+    @Inject
+    public AppState() {
+    }
+
+    public boolean isInChat() {
+        return isInChat;
+    }
+
+    public void setInChat(boolean value) {
+        isInChat = value;
+        scheduleDispatch();
+    }
+
+    public void addOnInChatChangeListener(OnInChatChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnInChatChangeListener(OnInChatChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private synchronized void scheduleDispatch() {
+
+        // 화면 회전처럼 짧은 시간에 값이 여러 번 바뀌면 마지막 값만 한 번 알린다
+        if (!isDispatchScheduled) {
+            isDispatchScheduled = true;
+            handler.post(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+
+        boolean value;
+        synchronized (this) {
+            isDispatchScheduled = false;
+            value = isInChat;
+            if (value == dispatchedInChat) {
+                return;
+            }
+            dispatchedInChat = value;
+        }
+        for (OnInChatChangeListener listener : listeners) {
+            listener.onInChatChanged(value);
+        }
+    }
+
+}
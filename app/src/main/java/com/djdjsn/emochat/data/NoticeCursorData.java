@@ -0,0 +1,87 @@
+package com.djdjsn.emochat.data;
+
+import android.app.Application;
+
+import com.djdjsn.emochat.utils.preferences.PreferenceKey;
+import com.djdjsn.emochat.utils.preferences.PreferenceStore;
+import com.google.firebase.Timestamp;
+
+public class NoticeCursorData {
+    // 알림 감시 프로세스(:sync)에서 마지막으로 처리한 알림의 위치를 저장하는 클래스
+    // Shared Preferences 는 여러 프로세스에서 같은 파일을 쓰면 서로의 값을 덮어쓰므로
+    // 화면 프로세스의 기본 프레퍼런스 파일과 분리된 파일에 :sync 프로세스만 쓴다
+    // 위치는 알림이 서버에 저장된 시각(나노초)과 문서 아이디의 쌍이다
+
+    public static final String FILE_NAME = "notice_cursor";
+    public static final String KEY_NOTICE_DELIVERED = "notice_delivered_";     // 뒤에 회원 uid 를 붙여서 사용
+    public static final String KEY_NOTICE_ID = "notice_id_";                   // 뒤에 회원 uid 를 붙여서 사용
+
+    // 알림을 감시 중인 회원 (시스템이 인텐트 없이 서비스를 다시 시작하면 이 값으로 이어서 감시한다)
+    public static final PreferenceKey<String> KEY_LISTENING_UID = PreferenceKey.ofString("listening_uid", null);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final PreferenceStore store;
+
+    public NoticeCursorData(Application application) {
+        store = new PreferenceStore(application, FILE_NAME);
+    }
+
+    public void whenLoaded(Runnable runnable) {
+        // 파일을 모두 읽은 뒤 메인 스레드에서 실행한다
+        store.whenLoaded(runnable);
+    }
+
+    public void close() {
+        // 저장 대기 중인 값을 저장하고 백그라운드 스레드를 종료한다
+        store.close();
+    }
+
+    public String getListeningUid() {
+        return store.get(KEY_LISTENING_UID);
+    }
+
+    public void setListeningUid(String uid) {
+        store.put(KEY_LISTENING_UID, uid);
+    }
+
+    public Timestamp getDeliveredCursor(String uid) {
+        // 이 기기에서 마지막으로 처리한 알림이 서버에 저장된 시각 (처리한 알림이 없으면 null)
+        long nanos = store.get(deliveredKey(uid));
+        if (nanos <= 0) {
+            return null;
+        }
+        return new Timestamp(nanos / NANOS_PER_SECOND, (int) (nanos % NANOS_PER_SECOND));
+    }
+
+    public String getIdCursor(String uid) {
+        // 이 기기에서 마지막으로 처리한 알림의 문서 아이디
+        return store.get(idKey(uid));
+    }
+
+    public void setNoticeCursor(String uid, Timestamp delivered, String id) {
+        store.put(deliveredKey(uid), delivered.getSeconds() * NANOS_PER_SECOND + delivered.getNanoseconds());
+        store.put(idKey(uid), id);
+    }
+
+    public static int compare(Timestamp delivered, String id, Timestamp cursorDelivered, String cursorId) {
+        // (서버 저장 시각, 문서 아이디) 순서로 비교한다 (커서가 없으면 항상 뒤)
+        if (cursorDelivered == null) {
+            return 1;
+        }
+        int result = delivered.compareTo(cursorDelivered);
+        if (result != 0) {
+            return result;
+        }
+        return id.compareTo(cursorId != null ? cursorId : "");
+    }
+
+    private static PreferenceKey<Long> deliveredKey(String uid) {
+        return PreferenceKey.ofLong(KEY_NOTICE_DELIVERED + uid, 0);
+    }
+
+    private static PreferenceKey<String> idKey(String uid) {
+        return PreferenceKey.ofString(KEY_NOTICE_ID + uid, null);
+    }
+
+}
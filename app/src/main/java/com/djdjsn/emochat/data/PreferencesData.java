@@ -1,31 +1,35 @@
 package com.djdjsn.emochat.data;
 
 import android.app.Application;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
 
 import androidx.lifecycle.LiveData;
 
-import com.djdjsn.emochat.utils.preferences.SharedPreferenceStringLiveData;
-
-import javax.inject.Inject;
+import com.djdjsn.emochat.utils.preferences.PreferenceKey;
+import com.djdjsn.emochat.utils.preferences.PreferenceStore;
 
 public class PreferencesData {
     // 프로그래머가 Shared Preferences (프레퍼런스) 에 정보를 입력하고 조회할 수 있는 클래스
+    // 값은 메모리에서 읽고, 저장은 백그라운드에서 모아서 처리한다
 
-    public static final String KEY_CURRENT_UID = "current_uid";
-    public static final String KEY_IS_IN_CHAT = "is_in_chat";
+    // 화면 프로세스만 쓰는 값 (알림 감시 프로세스의 값은 NoticeCursorData 의 별도 파일에 저장한다)
+    public static final PreferenceKey<String> KEY_CURRENT_UID = PreferenceKey.ofString("current_uid", null);
+    public static final String KEY_CHATS_BACKFILLED = "chats_backfilled_";     // 뒤에 회원 uid 를 붙여서 사용
 
-    private final SharedPreferences preferences;        // Shared Preferences 객체
+    private final PreferenceStore store;                // 메모리에 올려둔 프레퍼런스 값
     private final LiveData<String> currentUid;           // 현재 로그인 된 계정의 아이디(uid) 값
 
 
     public PreferencesData(Application application) {
 
-        preferences = PreferenceManager.getDefaultSharedPreferences(application);
-        
-        // Shared Preferences 의 값을 currentUid 에 연동한다
-        currentUid = new SharedPreferenceStringLiveData(preferences, KEY_CURRENT_UID, null);
+        store = new PreferenceStore(application);
+
+        // 프레퍼런스의 값을 currentUid 에 연동한다
+        currentUid = store.getLiveData(KEY_CURRENT_UID);
+    }
+
+    public void whenLoaded(Runnable runnable) {
+        // 프레퍼런스를 모두 읽은 뒤 메인 스레드에서 실행한다
+        store.whenLoaded(runnable);
     }
 
     public LiveData<String> getCurrentUidLive() {
@@ -35,27 +39,28 @@ public class PreferencesData {
 
     public String getCurrentUid() {
         // 현재 로그인 된 계정의 아이디 값을 불러온다
-        return preferences.getString(KEY_CURRENT_UID, null);
+        // 읽기가 끝나기 전이면 기다리므로 메인 스레드에서는 whenLoaded() 안에서 호출한다
+        // (메인 화면의 뷰모델은 MainActivity 가 읽기를 마친 뒤에 네비게이션 그래프를 연결하므로 기다리지 않는다)
+        return store.get(KEY_CURRENT_UID);
     }
 
     public void setCurrentUid(String uid) {
         // 현재 로그인 된 계정의 아이디 값을 설정한다
-        preferences.edit().putString(KEY_CURRENT_UID, uid).apply();
+        store.put(KEY_CURRENT_UID, uid);
     }
 
+    public boolean isChatsBackfilled(String uid) {
+        // 해당 회원의 기존 채팅방에 참여자 목록을 모두 채워 넣었는지 여부
+        return store.get(chatsBackfilledKey(uid));
+    }
 
-    public boolean isInChat() {
-        return preferences.getBoolean(KEY_IS_IN_CHAT, false);
+    public void setChatsBackfilled(String uid) {
+        store.put(chatsBackfilledKey(uid), true);
     }
 
-    public void setIsInChat(boolean value) {
-        preferences.edit().putBoolean(KEY_IS_IN_CHAT, value).apply();
+    private static PreferenceKey<Boolean> chatsBackfilledKey(String uid) {
+        return PreferenceKey.ofBoolean(KEY_CHATS_BACKFILLED + uid, false);
     }
 
 
 }
-
-
-
-
-
@@ -1,27 +1,71 @@
 package com.djdjsn.emochat.data.chat;
 
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+@Entity(tableName = "chats")
+@IgnoreExtraProperties      // archivedUntilId 등 MessageArchiver 만 쓰는 필드는 로컬 사본에 두지 않는다
 public class Chat {
 
-    private String id;
+    @PrimaryKey
+    @NonNull
+    private String id = "";
     private String uid1;
     private String uid2;
+    private List<String> participants;      // whereArrayContains 쿼리를 위한 참여자 uid 목록
+    private Map<String, Long> lastReadMillis;   // 회원별로 마지막으로 읽은 메세지의 작성 시각
     private long created;
+    @ColumnInfo(defaultValue = "0")
+    private boolean messagesMigrated;       // 메세지를 채팅방 하위 컬렉션으로 모두 옮겼는지 여부
+    @ColumnInfo(defaultValue = "0")
+    private long archivedUntil;             // 마지막으로 보관 문서(archives)에 묶은 메세지의 작성 시각 (늦게 도착한 메세지는 하위 컬렉션에 남음)
 
     public Chat() {}
 
+    @Ignore
     public Chat(String uid1, String uid2) {
-        this.id = uid1 + "-" + uid2;
+        this.id = idOf(uid1, uid2);
         this.uid1 = uid1;
         this.uid2 = uid2;
+        this.participants = Arrays.asList(uid1, uid2);
         this.created = System.currentTimeMillis();
+        this.messagesMigrated = true;       // 새 채팅방의 메세지는 처음부터 하위 컬렉션에 저장된다
+    }
+
+    public static String idOf(String uid, String other) {
+        // 두 회원의 uid 를 정렬하여 순서와 무관한 채팅방 아이디를 만든다
+        return uid.compareTo(other) <= 0 ? uid + "-" + other : other + "-" + uid;
+    }
+
+    public static String legacyIdOf(String uid, String other) {
+        // 정렬 없이 "생성자-상대" 순으로 만들어졌던 기존 채팅방 아이디 중 정렬 규칙과 다른 것
+        return uid.compareTo(other) <= 0 ? other + "-" + uid : uid + "-" + other;
     }
 
     public boolean hasUser(String uid) {
         return uid1.equals(uid) || uid2.equals(uid);
     }
 
+    public long lastReadMillisOf(String uid) {
+        // 해당 회원이 읽은 메세지의 작성 시각 (이 시각 이전에 작성된 메세지는 모두 읽음)
+        if (lastReadMillis == null) {
+            return 0;
+        }
+        Long millis = lastReadMillis.get(uid);
+        return millis != null ? millis : 0;
+    }
+
+    @NonNull
     public String getId() {
         return id;
     }
@@ -34,11 +78,27 @@ public class Chat {
         return uid2;
     }
 
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public Map<String, Long> getLastReadMillis() {
+        return lastReadMillis;
+    }
+
     public long getCreated() {
         return created;
     }
 
-    public void setId(String id) {
+    public boolean isMessagesMigrated() {
+        return messagesMigrated;
+    }
+
+    public long getArchivedUntil() {
+        return archivedUntil;
+    }
+
+    public void setId(@NonNull String id) {
         this.id = id;
     }
 
@@ -50,21 +110,37 @@ public class Chat {
         this.uid2 = uid2;
     }
 
+    public void setParticipants(List<String> participants) {
+        this.participants = participants;
+    }
+
+    public void setLastReadMillis(Map<String, Long> lastReadMillis) {
+        this.lastReadMillis = lastReadMillis;
+    }
+
     public void setCreated(long created) {
         this.created = created;
     }
 
+    public void setMessagesMigrated(boolean messagesMigrated) {
+        this.messagesMigrated = messagesMigrated;
+    }
+
+    public void setArchivedUntil(long archivedUntil) {
+        this.archivedUntil = archivedUntil;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Chat chat = (Chat) o;
-        return created == chat.created && id.equals(chat.id) && uid1.equals(chat.uid1) && uid2.equals(chat.uid2);
+        return created == chat.created && messagesMigrated == chat.messagesMigrated && archivedUntil == chat.archivedUntil && id.equals(chat.id) && uid1.equals(chat.uid1) && uid2.equals(chat.uid2) && Objects.equals(participants, chat.participants) && Objects.equals(lastReadMillis, chat.lastReadMillis);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, uid1, uid2, created);
+        return Objects.hash(id, uid1, uid2, participants, lastReadMillis, created, messagesMigrated, archivedUntil);
     }
 }
 
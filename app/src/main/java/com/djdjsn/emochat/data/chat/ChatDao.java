@@ -0,0 +1,32 @@
+package com.djdjsn.emochat.data.chat;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface ChatDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<Chat> chats);
+
+    @Query("DELETE FROM chats WHERE id IN (:ids)")
+    void delete(List<String> ids);
+
+    @Query("DELETE FROM chats")
+    void deleteAll();
+
+    @Query("SELECT * FROM chats WHERE id = :chatId")
+    LiveData<Chat> getChat(String chatId);
+
+    @Query("SELECT * FROM chats WHERE id = :chatId")
+    Chat findChat(String chatId);
+
+    @Query("SELECT * FROM chats WHERE uid1 = :uid OR uid2 = :uid")
+    LiveData<List<Chat>> getChatsOf(String uid);
+
+}
@@ -3,46 +3,69 @@ package com.djdjsn.emochat.data.chat;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.djdjsn.emochat.utils.ListUtils;
+import com.djdjsn.emochat.data.PreferencesData;
+import com.djdjsn.emochat.utils.firestore.FirestoreUtils;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class ChatRepository {
 
+    public static final int MAX_BATCH_SIZE = 500;       // 배치 하나에 넣을 수 있는 쓰기의 최대 수
+
     private final CollectionReference chatCollection;
+    private final ChatDao chatDao;
+    private final PreferencesData preferencesData;
 
     @Inject
-    public ChatRepository(FirebaseFirestore firestore) {
+    public ChatRepository(FirebaseFirestore firestore, ChatDao chatDao, PreferencesData preferencesData) {
         chatCollection = firestore.collection("chats");
+        this.chatDao = chatDao;
+        this.preferencesData = preferencesData;
     }
 
     public void getChatBetween(String uid, String other,
                             OnSuccessListener<Chat> onSuccessListener,
                             OnFailureListener onFailureListener) {
 
-        chatCollection.get()
-                .addOnSuccessListener(snapshots -> {
-                    if (snapshots == null) {
-                        onFailureListener.onFailure(new Exception("snapshots is null"));
+        // 정렬된 uid 쌍으로 만든 아이디로 채팅방 문서 하나만 조회한다
+        chatCollection.document(Chat.idOf(uid, other)).get()
+                .addOnSuccessListener(snapshot -> {
+                    Chat chat = snapshot.toObject(Chat.class);
+                    if (chat != null) {
+                        onSuccessListener.onSuccess(chat);
                         return;
                     }
-                    List<Chat> chats = snapshots.toObjects(Chat.class);
-                    for (Chat chat : chats) {
-                        if (chat.getId().contains(uid) && chat.getId().contains(other)) {
-                            onSuccessListener.onSuccess(chat);
-                            return;
-                        }
+                    // 정렬 규칙 이전에 반대 순서로 만들어진 채팅방이 있는지 확인한다
+                    // 참여자 목록 보정이 끝난 회원은 기존 채팅방도 모두 동기화되어 캐시에 있으므로 서버에 묻지 않는다
+                    if (preferencesData.isChatsBackfilled(uid)) {
+                        chatCollection.document(Chat.legacyIdOf(uid, other)).get(Source.CACHE)
+                                .addOnSuccessListener(legacySnapshot ->
+                                        onSuccessListener.onSuccess(legacySnapshot.toObject(Chat.class)))
+                                .addOnFailureListener(e -> onSuccessListener.onSuccess(null));
+                        return;
                     }
-                    onSuccessListener.onSuccess(null);
+                    chatCollection.document(Chat.legacyIdOf(uid, other)).get()
+                            .addOnSuccessListener(legacySnapshot ->
+                                    onSuccessListener.onSuccess(legacySnapshot.toObject(Chat.class)))
+                            .addOnFailureListener(onFailureListener);
                 })
                 .addOnFailureListener(onFailureListener);
     }
@@ -55,6 +78,14 @@ public class ChatRepository {
                 .addOnFailureListener(onFailureListener);
     }
 
+    public void updateLastRead(String chatId, String uid, long millis) {
+
+        // 문서 하나의 필드 하나만 갱신한다 (메세지 문서는 건드리지 않음)
+        chatCollection.document(chatId)
+                .update(FieldPath.of("lastReadMillis", uid), millis)
+                .addOnFailureListener(Throwable::printStackTrace);
+    }
+
     public LiveData<Chat> getChat(String chatId) {
 
         MutableLiveData<Chat> data = new MutableLiveData<>();
@@ -63,49 +94,14 @@ public class ChatRepository {
             return data;
         }
 
-        chatCollection.document(chatId).addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-                data.setValue(null);
-                return;
-            }
-            if (value == null) {
-                new Exception("value is null").printStackTrace();
-                data.setValue(null);
-                return;
-            }
-            data.setValue(value.toObject(Chat.class));
-        });
-
-        return data;
+        // SyncEngine 이 동기화한 로컬 사본을 구독한다
+        return chatDao.getChat(chatId);
     }
 
     public LiveData<List<Chat>> getChats(List<String> chatIds) {
 
-        MutableLiveData<List<Chat>> data = new MutableLiveData<>();
-
-        chatCollection.addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-            }
-            if (error != null || value == null) {
-                data.setValue(null);
-                return;
-            }
-            List<Chat> chats = new ArrayList<>();
-            for (DocumentSnapshot snapshot : value) {
-                Chat chat = snapshot.toObject(Chat.class);
-                if (chat != null) {
-                    if (chatIds != null && !chatIds.contains(chat.getId())) {
-                        continue;
-                    }
-                    chats.add(chat);
-                }
-            }
-            data.setValue(chats);
-        });
-
-        return data;
+        // 아이디 목록에 해당하는 채팅방만 whereIn 쿼리로 불러온다
+        return FirestoreUtils.getDocuments(chatCollection, chatIds, Chat.class);
     }
 
     public LiveData<List<Chat>> getChatsOf(String uid) {
@@ -116,21 +112,47 @@ public class ChatRepository {
             return data;
         }
 
-        chatCollection.addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-                data.setValue(null);
-                return;
-            }
-            if (value == null) {
-                data.setValue(null);
-                return;
-            }
-            List<Chat> chats = ListUtils.filter(value.toObjects(Chat.class), chat -> chat.hasUser(uid));
-            data.setValue(chats);
-        });
-
-        return data;
+        // 참여자 목록에 uid 가 포함된 채팅방의 로컬 사본을 구독한다
+        return chatDao.getChatsOf(uid);
+    }
+
+    public void backfillParticipants(String uid,
+                                     OnSuccessListener<Void> onSuccessListener,
+                                     OnFailureListener onFailureListener) {
+
+        // participants 필드가 없는 기존 채팅방에 참여자 목록을 채워 넣는다 (모든 배치가 저장되면 성공)
+        Task<QuerySnapshot> asUid1 = chatCollection.whereEqualTo("uid1", uid).get();
+        Task<QuerySnapshot> asUid2 = chatCollection.whereEqualTo("uid2", uid).get();
+
+        Tasks.whenAllSuccess(asUid1, asUid2)
+                .onSuccessTask(results -> {
+                    // 배치 하나에 최대 500개까지 쓸 수 있으므로 나누어 저장한다
+                    List<Task<Void>> commits = new ArrayList<>();
+                    WriteBatch batch = chatCollection.getFirestore().batch();
+                    int count = 0;
+                    for (Object result : results) {
+                        for (DocumentSnapshot snapshot : (QuerySnapshot) result) {
+                            Chat chat = snapshot.toObject(Chat.class);
+                            if (chat == null || chat.getParticipants() != null) {
+                                continue;
+                            }
+                            batch.update(snapshot.getReference(), "participants",
+                                    Arrays.asList(chat.getUid1(), chat.getUid2()));
+                            count++;
+                            if (count == MAX_BATCH_SIZE) {
+                                commits.add(batch.commit());
+                                batch = chatCollection.getFirestore().batch();
+                                count = 0;
+                            }
+                        }
+                    }
+                    if (count > 0) {
+                        commits.add(batch.commit());
+                    }
+                    return Tasks.whenAll(commits);
+                })
+                .addOnSuccessListener(onSuccessListener)
+                .addOnFailureListener(onFailureListener);
     }
 
 }
@@ -1,10 +1,18 @@
 package com.djdjsn.emochat.data.chatannotation;
 
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
 import java.util.Objects;
 
+@Entity(tableName = "chat_annotations")
 public class ChatAnnotation {
 
-    private String chatId;
+    @PrimaryKey
+    @NonNull
+    private String chatId = "";
     private String recentUserUid;
     private String recentMessageContent;
     private long recentMessageMillis;
@@ -14,18 +22,20 @@ public class ChatAnnotation {
 
     }
 
-    public ChatAnnotation(String chatId, String recentUserUid, String recentMessageContent, long recentMessageMillis) {
+    @Ignore
+    public ChatAnnotation(@NonNull String chatId, String recentUserUid, String recentMessageContent, long recentMessageMillis) {
         this.chatId = chatId;
         this.recentUserUid = recentUserUid;
         this.recentMessageContent = recentMessageContent;
         this.recentMessageMillis = recentMessageMillis;
     }
 
+    @NonNull
     public String getChatId() {
         return chatId;
     }
 
-    public void setChatId(String chatId) {
+    public void setChatId(@NonNull String chatId) {
         this.chatId = chatId;
     }
 
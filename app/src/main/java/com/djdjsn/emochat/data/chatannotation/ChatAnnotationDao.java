@@ -0,0 +1,28 @@
+package com.djdjsn.emochat.data.chatannotation;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface ChatAnnotationDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<ChatAnnotation> annotations);
+
+    @Query("DELETE FROM chat_annotations WHERE chatId IN (:chatIds)")
+    void delete(List<String> chatIds);
+
+    @Query("DELETE FROM chat_annotations")
+    void deleteAll();
+
+    // 회원이 참여한 채팅방의 요약 정보를 최근 메세지 순으로 불러온다
+    @Query("SELECT chat_annotations.* FROM chat_annotations INNER JOIN chats ON chat_annotations.chatId = chats.id " +
+            "WHERE chats.uid1 = :uid OR chats.uid2 = :uid ORDER BY chat_annotations.recentMessageMillis DESC")
+    LiveData<List<ChatAnnotation>> getAnnotationsOf(String uid);
+
+}
@@ -3,35 +3,37 @@ package com.djdjsn.emochat.data.chatannotation;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
+import com.djdjsn.emochat.utils.firestore.FirestoreUtils;
+import com.djdjsn.emochat.utils.firestore.SnapshotListenerRegistry;
 import com.google.firebase.firestore.CollectionReference;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class ChatAnnotationRepository {
 
     private final CollectionReference annotationCollection;
+    private final SnapshotListenerRegistry listenerRegistry;
+    private final ChatAnnotationDao chatAnnotationDao;
 
     @Inject
-    public ChatAnnotationRepository(FirebaseFirestore firestore) {
+    public ChatAnnotationRepository(FirebaseFirestore firestore, SnapshotListenerRegistry listenerRegistry,
+                                    ChatAnnotationDao chatAnnotationDao) {
 
         annotationCollection = firestore.collection("chat_annotations");
+        this.listenerRegistry = listenerRegistry;
+        this.chatAnnotationDao = chatAnnotationDao;
     }
 
-    public void addAnnotation(ChatAnnotation chatAnnotation,
-                              OnSuccessListener<Void> onSuccessListener,
-                              OnFailureListener onFailureListener) {
+    public void addAnnotation(WriteBatch batch, ChatAnnotation chatAnnotation) {
 
-        annotationCollection.document(chatAnnotation.getChatId())
-                .set(chatAnnotation)
-                .addOnSuccessListener(onSuccessListener)
-                .addOnFailureListener(onFailureListener);
+        // 메세지와 함께 커밋되도록 배치에 추가만 한다
+        batch.set(annotationCollection.document(chatAnnotation.getChatId()), chatAnnotation);
     }
 
     public LiveData<ChatAnnotation> getAnnotation(String chatId) {
@@ -42,48 +44,25 @@ public class ChatAnnotationRepository {
             return data;
         }
 
-        annotationCollection.document(chatId)
-                .addSnapshotListener((values, error) -> {
-                    if (error != null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    if (values == null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    data.setValue(values.toObject(ChatAnnotation.class));
-                });
-
-        return data;
+        return listenerRegistry.document(annotationCollection.document(chatId), ChatAnnotation.class);
     }
 
     public LiveData<List<ChatAnnotation>> getAnnotationList(List<String> chatIds) {
 
+        // 채팅방 아이디(= 문서 아이디) 목록에 해당하는 요약 정보만 whereIn 쿼리로 불러온다
+        return FirestoreUtils.getDocuments(annotationCollection, chatIds, ChatAnnotation.class);
+    }
+
+    public LiveData<List<ChatAnnotation>> getAnnotationsOf(String uid) {
+
         MutableLiveData<List<ChatAnnotation>> data = new MutableLiveData<>();
+        if (uid == null) {
+            data.setValue(null);
+            return data;
+        }
 
-        annotationCollection.addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-            }
-            if (error != null || value == null) {
-                data.setValue(null);
-                return;
-            }
-            List<ChatAnnotation> annotations = new ArrayList<>();
-            for (DocumentSnapshot snapshot : value) {
-                ChatAnnotation annotation = snapshot.toObject(ChatAnnotation.class);
-                if (annotation != null) {
-                    if (chatIds != null && !chatIds.contains(annotation.getChatId())) {
-                        continue;
-                    }
-                    annotations.add(annotation);
-                }
-            }
-            data.setValue(annotations);
-        });
-
-        return data;
+        // 회원이 참여한 채팅방의 요약 정보를 로컬 사본에서 불러온다 (최근 메세지 순)
+        return chatAnnotationDao.getAnnotationsOf(uid);
     }
 }
 
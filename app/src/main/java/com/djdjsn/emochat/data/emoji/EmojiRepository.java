@@ -1,44 +1,31 @@
 package com.djdjsn.emochat.data.emoji;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 
+import com.djdjsn.emochat.utils.firestore.SnapshotListenerRegistry;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class EmojiRepository {
 
     private final CollectionReference emojiCollection;
+    private final SnapshotListenerRegistry listenerRegistry;
 
     @Inject
-    public EmojiRepository(FirebaseFirestore firestore) {
+    public EmojiRepository(FirebaseFirestore firestore, SnapshotListenerRegistry listenerRegistry) {
         emojiCollection = firestore.collection("emojis");
+        this.listenerRegistry = listenerRegistry;
     }
 
     public LiveData<List<Emoji>> getEmojis() {
 
-        MutableLiveData<List<Emoji>> data = new MutableLiveData<>();
-
-        emojiCollection.addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-                data.setValue(null);
-                return;
-            }
-            List<Emoji> emojis = new ArrayList<>();
-            if (value == null) {
-                data.setValue(emojis);
-                return;
-            }
-            data.setValue(value.toObjects(Emoji.class));
-        });
-
-        return data;
+        return listenerRegistry.query(emojiCollection, Emoji.class);
     }
 
 
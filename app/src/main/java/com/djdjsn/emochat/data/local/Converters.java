@@ -0,0 +1,58 @@
+package com.djdjsn.emochat.data.local;
+
+import androidx.room.TypeConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Converters {
+    // 로컬 데이터베이스에 목록과 맵 필드를 문자열로 저장하기 위한 변환기
+    // 회원 uid 에는 ',' 와 '=' 가 포함되지 않는다
+
+    @TypeConverter
+    public static String fromList(List<String> values) {
+        return values != null ? String.join(",", values) : null;
+    }
+
+    @TypeConverter
+    public static List<String> toList(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(value.split(",")));
+    }
+
+    @TypeConverter
+    public static String fromMillisMap(Map<String, Long> map) {
+        if (map == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : map.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    @TypeConverter
+    public static Map<String, Long> toMillisMap(String value) {
+        if (value == null) {
+            return null;
+        }
+        Map<String, Long> map = new HashMap<>();
+        for (String entry : value.split(",")) {
+            int index = entry.indexOf('=');
+            if (index > 0) {
+                map.put(entry.substring(0, index), Long.parseLong(entry.substring(index + 1)));
+            }
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.djdjsn.emochat.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Database;
+import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.djdjsn.emochat.data.chat.Chat;
+import com.djdjsn.emochat.data.chat.ChatDao;
+import com.djdjsn.emochat.data.chatannotation.ChatAnnotation;
+import com.djdjsn.emochat.data.chatannotation.ChatAnnotationDao;
+import com.djdjsn.emochat.data.message.Message;
+import com.djdjsn.emochat.data.message.MessageDao;
+import com.djdjsn.emochat.data.message.MessageFts;
+import com.djdjsn.emochat.data.message.MessageSync;
+import com.djdjsn.emochat.data.message.MessageSyncDao;
+import com.djdjsn.emochat.data.outbox.OutgoingMessage;
+import com.djdjsn.emochat.data.outbox.OutgoingMessageDao;
+import com.djdjsn.emochat.data.user.User;
+import com.djdjsn.emochat.data.user.UserDao;
+import com.djdjsn.emochat.data.userrelation.UserRelation;
+import com.djdjsn.emochat.data.userrelation.UserRelationDao;
+
+@Database(entities = {
+        OutgoingMessage.class,
+        Chat.class,
+        Message.class,
+        MessageFts.class,
+        MessageSync.class,
+        User.class,
+        ChatAnnotation.class,
+        UserRelation.class
+}, version = 7, exportSchema = false)
+@TypeConverters(Converters.class)
+public abstract class EmoChatDatabase extends RoomDatabase {
+    // 기기에 저장하는 로컬 데이터베이스
+    // 보낼 메세지(outbox) 외의 테이블은 SyncEngine 이 Firestore 의 변경사항을 반영하는 사본이다
+
+    public static final String NAME = "emochat.db";
+
+    // 2: 보낼 메세지에 보낸 사람의 닉네임을 추가
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE outbox ADD COLUMN senderNickname TEXT");
+        }
+    };
+
+    // 3: 채팅방, 메세지, 회원, 채팅방 요약 정보, 친구 관계 사본 테이블을 추가
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `chats` (`id` TEXT NOT NULL, `uid1` TEXT, `uid2` TEXT, " +
+                    "`participants` TEXT, `lastReadMillis` TEXT, `created` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `messages` (`id` TEXT NOT NULL, `chatId` TEXT, `uid` TEXT, " +
+                    "`emojiUrl` TEXT, `content` TEXT, `created` INTEGER NOT NULL, `isPending` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_chatId_created` ON `messages` (`chatId`, `created`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `users` (`uid` TEXT NOT NULL, `id` TEXT, `nickname` TEXT, " +
+                    "`phone` TEXT, `created` INTEGER NOT NULL, PRIMARY KEY(`uid`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `chat_annotations` (`chatId` TEXT NOT NULL, " +
+                    "`recentUserUid` TEXT, `recentMessageContent` TEXT, `recentMessageMillis` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`chatId`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `user_relations` (`uid` TEXT NOT NULL, `other` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`uid`, `other`))");
+        }
+    };
+
+    // 4: 메세지 전문 검색을 위한 토큰 열과 FTS 테이블을 추가
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `messages` ADD COLUMN `searchTokens` TEXT");
+            // 기존 사본에는 토큰이 없으므로 비우고 다시 동기화한다
+            database.execSQL("DELETE FROM `messages`");
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `messages_fts` USING FTS4(`searchTokens` TEXT, content=`messages`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_BEFORE_UPDATE BEFORE UPDATE ON `messages` " +
+                    "BEGIN DELETE FROM `messages_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_BEFORE_DELETE BEFORE DELETE ON `messages` " +
+                    "BEGIN DELETE FROM `messages_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_AFTER_UPDATE AFTER UPDATE ON `messages` " +
+                    "BEGIN INSERT INTO `messages_fts`(`docid`, `searchTokens`) VALUES (NEW.`rowid`, NEW.`searchTokens`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_messages_fts_AFTER_INSERT AFTER INSERT ON `messages` " +
+                    "BEGIN INSERT INTO `messages_fts`(`docid`, `searchTokens`) VALUES (NEW.`rowid`, NEW.`searchTokens`); END");
+        }
+    };
+
+    // 5: 채팅방에 메세지 하위 컬렉션 이전 완료 여부를 추가
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `chats` ADD COLUMN `messagesMigrated` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // 6: 채팅방에 보관 문서로 묶인 메세지의 범위를 추가
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `chats` ADD COLUMN `archivedUntil` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // 7: 채팅방별 메세지 동기화 상태(받은 변경의 서버 시각, 빠짐없이 받은 범위)를 추가
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `message_sync` (`chatId` TEXT NOT NULL, " +
+                    "`syncedNanos` INTEGER NOT NULL, `coveredCreated` INTEGER NOT NULL, `coveredId` TEXT, " +
+                    "PRIMARY KEY(`chatId`))");
+        }
+    };
+
+    public abstract OutgoingMessageDao outgoingMessageDao();
+
+    public abstract ChatDao chatDao();
+
+    public abstract MessageDao messageDao();
+
+    public abstract MessageSyncDao messageSyncDao();
+
+    public abstract UserDao userDao();
+
+    public abstract ChatAnnotationDao chatAnnotationDao();
+
+    public abstract UserRelationDao userRelationDao();
+
+}
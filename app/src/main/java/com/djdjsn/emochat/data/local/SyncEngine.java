@@ -0,0 +1,631 @@
+package com.djdjsn.emochat.data.local;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.djdjsn.emochat.data.chat.Chat;
+import com.djdjsn.emochat.data.chat.ChatDao;
+import com.djdjsn.emochat.data.chatannotation.ChatAnnotation;
+import com.djdjsn.emochat.data.chatannotation.ChatAnnotationDao;
+import com.djdjsn.emochat.data.message.Message;
+import com.djdjsn.emochat.data.message.MessageArchiver;
+import com.djdjsn.emochat.data.message.MessageDao;
+import com.djdjsn.emochat.data.message.MessagePager;
+import com.djdjsn.emochat.data.message.MessageRepository;
+import com.djdjsn.emochat.data.message.MessageSync;
+import com.djdjsn.emochat.data.message.MessageSyncDao;
+import com.djdjsn.emochat.data.outbox.OutgoingMessage;
+import com.djdjsn.emochat.data.outbox.OutgoingMessageDao;
+import com.djdjsn.emochat.data.user.User;
+import com.djdjsn.emochat.data.user.UserDao;
+import com.djdjsn.emochat.data.userrelation.UserRelation;
+import com.djdjsn.emochat.data.userrelation.UserRelationDao;
+import com.djdjsn.emochat.utils.HybridLogicalClock;
+import com.djdjsn.emochat.utils.firestore.FirestoreUtils;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class SyncEngine {
+    // Firestore 의 변경사항(추가/수정/삭제)을 로컬 데이터베이스에 반영하는 클래스
+    // 화면은 로컬 테이블만 구독하므로 앱을 켜자마자 기기에 저장된 내용을 먼저 보여줄 수 있다
+    // 짧은 시간 동안 도착한 변경사항은 모아서 하나의 트랜잭션으로 반영한다
+
+    public static final long APPLY_DELAY_MILLIS = 50;      // 변경사항을 모으는 시간
+    public static final long LEGACY_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(10);   // 기존 컬렉션을 겹쳐 받는 시간
+
+    // 기존 전역 messages 컬렉션에 쓰는 예전 버전 앱이 남아 있는지 알려주는 원격 설정 (없으면 남아 있는 것으로 본다)
+    // 최소 지원 버전을 올려 예전 버전이 더 이상 쓰지 않게 되면 legacyWritersActive 를 false 로 바꾼다
+    // 그러면 기존 컬렉션 구독이 꺼지며, 모든 기기에 반영된 뒤 구독 코드와 (chatId, created) 복합 색인을 지운다
+    public static final String CONFIG_COLLECTION = "app_config";
+    public static final String CONFIG_MESSAGES = "messages";
+    public static final String FIELD_LEGACY_WRITERS_ACTIVE = "legacyWritersActive";
+
+    private final FirebaseFirestore firestore;
+    private final EmoChatDatabase database;
+    private final ChatDao chatDao;
+    private final MessageDao messageDao;
+    private final MessageSyncDao messageSyncDao;
+    private final OutgoingMessageDao outgoingMessageDao;
+    private final UserDao userDao;
+    private final ChatAnnotationDao chatAnnotationDao;
+    private final UserRelationDao userRelationDao;
+    private final MessageRepository messageRepository;
+    private final MessageArchiver messageArchiver;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final List<Runnable> pendingChanges = new ArrayList<>();      // 다음 트랜잭션에 반영할 변경사항
+    private boolean isApplyScheduled;
+
+    private String uid;                                                     // 동기화 중인 회원
+    private final List<ListenerRegistration> registrations = new ArrayList<>();
+    private final ChunkedListener<ChatAnnotation> annotationListener;
+    private final ChunkedListener<User> userListener;
+    private Set<String> counterpartUids = new HashSet<>();
+    private Set<String> friendUids = new HashSet<>();
+    private boolean isLegacyWritersActive = true;                            // 원격 설정을 받기 전에는 남아 있는 것으로 본다
+
+    private final Map<String, Integer> watchCounts = new HashMap<>();                      // 채팅방별 구독 수
+    private final Map<String, List<ListenerRegistration>> messageRegistrations = new HashMap<>();
+
+
+    @Inject
+    public SyncEngine(FirebaseFirestore firestore, EmoChatDatabase database,
+                      ChatDao chatDao, MessageDao messageDao, MessageSyncDao messageSyncDao,
+                      OutgoingMessageDao outgoingMessageDao, UserDao userDao,
+                      ChatAnnotationDao chatAnnotationDao, UserRelationDao userRelationDao,
+                      MessageRepository messageRepository, MessageArchiver messageArchiver) {
+        this.firestore = firestore;
+        this.database = database;
+        this.chatDao = chatDao;
+        this.messageDao = messageDao;
+        this.messageSyncDao = messageSyncDao;
+        this.outgoingMessageDao = outgoingMessageDao;
+        this.userDao = userDao;
+        this.chatAnnotationDao = chatAnnotationDao;
+        this.userRelationDao = userRelationDao;
+        this.messageRepository = messageRepository;
+        this.messageArchiver = messageArchiver;
+
+        annotationListener = new ChunkedListener<>(firestore.collection("chat_annotations"),
+                snapshot -> snapshot.toObject(ChatAnnotation.class),
+                chatAnnotationDao::upsert, chatAnnotationDao::delete);
+        userListener = new ChunkedListener<>(firestore.collection("users"),
+                snapshot -> snapshot.toObject(User.class),
+                userDao::upsert, userDao::delete);
+    }
+
+    public void start(String uid) {
+
+        // 회원이 참여한 채팅방, 친구 관계, 관련 회원정보, 채팅방 요약 정보를 동기화한다
+        if (uid == null || uid.equals(this.uid)) {
+            return;
+        }
+        stop();
+        this.uid = uid;
+
+        // 재시작 후에도 이 기기에서 보낸 메세지보다 뒤의 아이디를 만들도록 로컬 테이블의 가장 최근 시각으로 시계를 맞춘다
+        // (기기 시계가 그 사이 뒤로 갔으면 새 메세지가 자신의 이전 메세지 앞에 정렬된다)
+        executor.execute(() -> {
+            HybridLogicalClock clock = HybridLogicalClock.getInstance();
+            OutgoingMessage outgoing = outgoingMessageDao.getLatest();
+            if (outgoing != null) {
+                clock.seed(outgoing.getId(), outgoing.getCreated());
+            }
+            Message sent = messageDao.getLatestOf(uid);
+            if (sent != null) {
+                clock.seed(sent.getId(), sent.getCreated());
+            }
+        });
+
+        Query chatQuery = firestore.collection("chats").whereArrayContains("participants", uid);
+        registrations.add(chatQuery.addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            enqueue(snapshot, s -> s.toObject(Chat.class), chatDao::upsert, chatDao::delete);
+
+            List<String> chatIds = new ArrayList<>();
+            Set<String> others = new HashSet<>();
+            for (DocumentSnapshot document : snapshot.getDocuments()) {
+                Chat chat = document.toObject(Chat.class);
+                if (chat != null) {
+                    chatIds.add(chat.getId());
+                    others.add(uid.equals(chat.getUid1()) ? chat.getUid2() : chat.getUid1());
+                }
+            }
+            annotationListener.setIds(chatIds);
+            counterpartUids = others;
+            updateUserIds();
+        }));
+
+        registrations.add(firestore.collection(CONFIG_COLLECTION).document(CONFIG_MESSAGES).addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return;
+            }
+            // 바뀐 설정은 다음에 여는 채팅방부터 적용한다
+            Boolean isActive = snapshot != null ? snapshot.getBoolean(FIELD_LEGACY_WRITERS_ACTIVE) : null;
+            isLegacyWritersActive = isActive == null || isActive;
+        }));
+
+        Query relationQuery = firestore.collection("user_relations").whereEqualTo("uid", uid);
+        registrations.add(relationQuery.addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            // 친구 관계는 아이디 대신 (uid, other) 쌍으로 삭제한다
+            List<UserRelation> added = new ArrayList<>();
+            List<UserRelation> removed = new ArrayList<>();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                UserRelation relation = change.getDocument().toObject(UserRelation.class);
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removed.add(relation);
+                } else {
+                    added.add(relation);
+                }
+            }
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                enqueue(() -> {
+                    if (!added.isEmpty()) {
+                        userRelationDao.upsert(added);
+                    }
+                    if (!removed.isEmpty()) {
+                        userRelationDao.delete(removed);
+                    }
+                });
+            }
+
+            Set<String> others = new HashSet<>();
+            for (DocumentSnapshot document : snapshot.getDocuments()) {
+                String other = document.getString("other");
+                if (other != null) {
+                    others.add(other);
+                }
+            }
+            friendUids = others;
+            updateUserIds();
+        }));
+    }
+
+    public void stop() {
+
+        // 모든 리스너를 해제한다 (로컬 테이블은 유지)
+        for (ListenerRegistration registration : registrations) {
+            registration.remove();
+        }
+        registrations.clear();
+        annotationListener.clear();
+        userListener.clear();
+        counterpartUids = new HashSet<>();
+        friendUids = new HashSet<>();
+        uid = null;
+    }
+
+    public void clear() {
+
+        // 로그아웃 시 다른 회원의 정보가 기기에 남지 않도록 사본 테이블을 비운다 (보낼 메세지는 유지)
+        stop();
+        enqueue(() -> {
+            chatDao.deleteAll();
+            messageDao.deleteAll();
+            messageSyncDao.deleteAll();
+            userDao.deleteAll();
+            chatAnnotationDao.deleteAll();
+            userRelationDao.deleteAll();
+        });
+    }
+
+    public void watchChat(String chatId) {
+
+        // 채팅방 화면이 열려 있는 동안 해당 채팅방의 메세지를 동기화한다
+        if (chatId == null) {
+            return;
+        }
+        Integer count = watchCounts.get(chatId);
+        watchCounts.put(chatId, count != null ? count + 1 : 1);
+        if (count != null) {
+            return;
+        }
+
+        // 마지막으로 받은 변경 이후에 서버에 쓰인 메세지만 받는다 (작성 시각이 아닌 서버 시각 기준)
+        executor.execute(() -> {
+            MessageSync sync = messageSyncDao.find(chatId);
+            Long latestCreated = messageDao.getLatestCreated(chatId);
+            Chat chat = chatDao.findChat(chatId);
+            handler.post(() -> {
+                if (chat != null && chat.isMessagesMigrated()) {
+                    startWatching(chatId, chat, sync, latestCreated, false);
+                    return;
+                }
+                // 로컬 사본이 아직 없거나 옮기지 않은 것으로 되어 있으면 서버의 채팅방 문서로 확인한다
+                // (새로 설치한 기기 등에서 이미 옮긴 채팅방의 기존 메세지를 다시 복사하지 않도록)
+                firestore.collection("chats").document(chatId).get()
+                        .addOnSuccessListener(document -> {
+                            Chat serverChat = document.toObject(Chat.class);
+                            startWatching(chatId, serverChat, sync, latestCreated, serverChat != null);
+                        })
+                        .addOnFailureListener(e -> {
+                            // 확인하지 못하면 옮기지 않고 두 곳을 함께 구독한다
+                            e.printStackTrace();
+                            startWatching(chatId, chat, sync, latestCreated, false);
+                        });
+            });
+        });
+    }
+
+    private void startWatching(String chatId, Chat chat, MessageSync sync, Long latestCreated, boolean canMigrate) {
+
+        if (!watchCounts.containsKey(chatId) || messageRegistrations.containsKey(chatId)) {
+            return;
+        }
+        boolean isMigrated = chat != null && chat.isMessagesMigrated();
+        List<ListenerRegistration> chatRegistrations = new ArrayList<>();
+        messageRegistrations.put(chatId, chatRegistrations);
+        if (sync != null && sync.getSyncedNanos() > 0) {
+            chatRegistrations.add(listenMessageChanges(chatId, MessageSync.timestampOf(sync.getSyncedNanos())));
+        } else {
+            chatRegistrations.add(listenFirstPage(chatId, chat, chatRegistrations));
+        }
+        if (!isMigrated || isLegacyWritersActive) {
+            // 옮기는 동안, 그리고 옮긴 뒤에도 예전 버전 앱이 남아 있는 동안에는 기존 전역 컬렉션도 함께 구독한다
+            chatRegistrations.add(listenLegacyMessages(chatId, chat, latestCreated));
+        }
+        if (isMigrated) {
+            // 오래된 메세지를 보관 문서로 묶는다 (옮기는 중인 채팅방은 끝난 뒤 다음에 열 때 묶는다)
+            messageArchiver.archiveOldMessages(chatId);
+        } else if (canMigrate) {
+            messageRepository.migrateMessagesOf(chatId);
+        }
+    }
+
+    private ListenerRegistration listenFirstPage(String chatId, Chat chat, List<ListenerRegistration> chatRegistrations) {
+
+        // 처음 여는 채팅방은 최근 한 페이지만 받고, 이전 메세지는 스크롤할 때 불러온다
+        // 서버에서 받은 첫 결과로 동기화 위치를 정한 뒤 서버 시각 기준의 변경 구독으로 바꾼다
+        ListenerRegistration[] registration = new ListenerRegistration[1];
+        registration[0] = messageRepository.getMessageCollection(chatId)
+                .orderBy("created", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(MessagePager.PAGE_SIZE)
+                .addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+                    if (e != null) {
+                        e.printStackTrace();
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    List<Message> messages = messagesOf(snapshot);
+                    if (!messages.isEmpty()) {
+                        enqueue(() -> messageDao.upsert(messages));
+                    }
+                    if (snapshot.getMetadata().isFromCache() || snapshot.getMetadata().hasPendingWrites()) {
+                        return;
+                    }
+                    if (!chatRegistrations.remove(registration[0])) {
+                        return;
+                    }
+                    registration[0].remove();
+
+                    List<DocumentSnapshot> documents = snapshot.getDocuments();
+                    Timestamp synced = latestUpdatedOf(documents);
+                    if (synced == null) {
+                        // 서버 시각이 없는 예전 메세지뿐이면 가장 최근 작성 시각에서 겹쳐 받는 시간만큼 앞선 시각부터 받는다
+                        Long newestCreated = documents.isEmpty() ? null : documents.get(0).getLong("created");
+                        long millis = newestCreated != null ? Math.max(0, newestCreated - LEGACY_OVERLAP_MILLIS) : 0;
+                        synced = new Timestamp(new Date(millis));
+                    }
+                    long syncedNanos = MessageSync.nanosOf(synced);
+                    // 옮긴 채팅방은 받은 페이지부터 최근까지를 빠짐없는 범위로 기록한다
+                    // (페이지가 모자라고 보관 문서도 없으면 첫 메세지부터 모두 받은 것이다)
+                    boolean isMigrated = chat != null && chat.isMessagesMigrated();
+                    boolean isComplete = documents.size() < MessagePager.PAGE_SIZE && (chat == null || chat.getArchivedUntil() == 0);
+                    DocumentSnapshot oldest = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    Long oldestCreated = oldest != null ? oldest.getLong("created") : null;
+                    enqueue(() -> {
+                        if (isMigrated && isComplete) {
+                            messageSyncDao.extendCovered(chatId, 0, "");
+                        } else if (isMigrated && oldestCreated != null) {
+                            messageSyncDao.extendCovered(chatId, oldestCreated, oldest.getId());
+                        }
+                        messageSyncDao.advanceSynced(chatId, syncedNanos);
+                    });
+                    chatRegistrations.add(listenMessageChanges(chatId, synced));
+                });
+        return registration[0];
+    }
+
+    private ListenerRegistration listenMessageChanges(String chatId, Timestamp synced) {
+
+        // synced 이후에 서버에 쓰인 메세지를 받는다 (작성 시각과 상관없이 늦게 도착한 메세지도 받는다)
+        // 서버에서 받은 결과의 가장 최근 서버 시각을 저장하여 다음에 열 때 그 이후부터 받는다
+        return messageRepository.getMessageCollection(chatId)
+                .whereGreaterThanOrEqualTo("updated", synced)
+                .orderBy("updated", Query.Direction.ASCENDING)
+                .addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+                    if (e != null) {
+                        e.printStackTrace();
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    List<Message> messages = messagesOf(snapshot);
+                    Timestamp latest = snapshot.getMetadata().isFromCache() ? null : latestUpdatedOf(snapshot.getDocuments());
+                    if (messages.isEmpty() && latest == null) {
+                        return;
+                    }
+                    enqueue(() -> {
+                        if (!messages.isEmpty()) {
+                            messageDao.upsert(messages);
+                        }
+                        if (latest != null) {
+                            messageSyncDao.advanceSynced(chatId, MessageSync.nanosOf(latest));
+                        }
+                    });
+                });
+    }
+
+    private ListenerRegistration listenLegacyMessages(String chatId, Chat chat, Long latestCreated) {
+
+        // 기존 전역 컬렉션의 메세지에는 서버 시각이 없으므로 작성 시각으로 받는다
+        // 늦게 도착한 메세지를 놓치지 않도록 가장 최근 메세지보다 조금 앞선 시각부터 겹쳐 받는다
+        // 첫 페이지 동기화가 기록된 뒤에 도착한 메세지 중 보관 범위 이후이고 하위 컬렉션에 없는 것은
+        // 예전 버전 앱이 복사 중이나 복사 뒤에 쓴 것이므로 하위 컬렉션에 다시 복사한다
+        Query query = messageRepository.getLegacyMessageQuery(chatId);
+        if (latestCreated != null) {
+            query = query.whereGreaterThanOrEqualTo("created", latestCreated - LEGACY_OVERLAP_MILLIS)
+                    .orderBy("created", Query.Direction.ASCENDING);
+        } else {
+            query = query.orderBy("created", Query.Direction.DESCENDING)
+                    .limit(MessagePager.PAGE_SIZE);
+        }
+        return query.addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            List<Message> messages = messagesOf(snapshot);
+            if (messages.isEmpty()) {
+                return;
+            }
+            List<DocumentSnapshot> added = new ArrayList<>();
+            if (!snapshot.getMetadata().isFromCache()) {
+                for (DocumentChange change : snapshot.getDocumentChanges()) {
+                    if (change.getType() == DocumentChange.Type.ADDED && !change.getDocument().getMetadata().hasPendingWrites()) {
+                        added.add(change.getDocument());
+                    }
+                }
+            }
+            enqueue(() -> {
+                messageDao.upsert(messages);
+                MessageSync sync = messageSyncDao.find(chatId);
+                if (added.isEmpty() || sync == null || sync.getSyncedNanos() == 0) {
+                    return;
+                }
+                // 보관 문서로 묶여 지워진 메세지가 다시 살아나지 않도록 보관 범위 이후의 메세지만 복사한다
+                Chat local = chatDao.findChat(chatId);
+                long archivedUntil = Math.max(chat != null ? chat.getArchivedUntil() : 0,
+                        local != null ? local.getArchivedUntil() : 0);
+                List<DocumentSnapshot> candidates = new ArrayList<>();
+                for (DocumentSnapshot document : added) {
+                    Long created = document.getLong("created");
+                    if (created != null && created > archivedUntil) {
+                        candidates.add(document);
+                    }
+                }
+                if (!candidates.isEmpty()) {
+                    handler.post(() -> messageRepository.recopyMissingLegacyMessages(chatId, candidates));
+                }
+            });
+        });
+    }
+
+    private static List<Message> messagesOf(QuerySnapshot snapshot) {
+
+        // 메세지는 삭제되지 않으므로 쿼리 범위에서 벗어난 메세지(REMOVED)는 지우지 않는다
+        List<Message> messages = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges(MetadataChanges.INCLUDE)) {
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                Message message = Message.fromSnapshot(change.getDocument());
+                if (message != null) {
+                    // 받은 메세지의 시각을 반영하여 이후에 보내는 메세지가 그보다 뒤에 정렬되도록 한다
+                    HybridLogicalClock.getInstance().observe(message.getId(), message.getCreated());
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    private static Timestamp latestUpdatedOf(List<DocumentSnapshot> documents) {
+        // 서버에 반영된 메세지 중 가장 최근 서버 시각 (없으면 null)
+        Timestamp latest = null;
+        for (DocumentSnapshot document : documents) {
+            Timestamp updated = document.getMetadata().hasPendingWrites() ? null : document.getTimestamp("updated");
+            if (updated != null && (latest == null || updated.compareTo(latest) > 0)) {
+                latest = updated;
+            }
+        }
+        return latest;
+    }
+
+    public void unwatchChat(String chatId) {
+
+        Integer count = watchCounts.get(chatId);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            watchCounts.put(chatId, count - 1);
+            return;
+        }
+        watchCounts.remove(chatId);
+        List<ListenerRegistration> chatRegistrations = messageRegistrations.remove(chatId);
+        if (chatRegistrations != null) {
+            for (ListenerRegistration registration : chatRegistrations) {
+                registration.remove();
+            }
+        }
+    }
+
+    private void updateUserIds() {
+
+        // 내 정보, 채팅 상대, 친구의 회원정보를 동기화한다
+        if (uid == null) {
+            return;
+        }
+        Set<String> uids = new LinkedHashSet<>();
+        uids.add(uid);
+        uids.addAll(counterpartUids);
+        uids.addAll(friendUids);
+        userListener.setIds(new ArrayList<>(uids));
+    }
+
+    private <T> void enqueue(QuerySnapshot snapshot, Function<DocumentSnapshot, T> converter,
+                             Consumer<List<T>> upsert, Consumer<List<String>> delete) {
+
+        // 스냅샷의 변경분만 골라 반영한다
+        List<T> changed = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                removedIds.add(change.getDocument().getId());
+            } else {
+                T value = converter.apply(change.getDocument());
+                if (value != null) {
+                    changed.add(value);
+                }
+            }
+        }
+        if (changed.isEmpty() && removedIds.isEmpty()) {
+            return;
+        }
+        enqueue(() -> {
+            if (!changed.isEmpty()) {
+                upsert.accept(changed);
+            }
+            if (!removedIds.isEmpty()) {
+                delete.accept(removedIds);
+            }
+        });
+    }
+
+    private synchronized void enqueue(Runnable change) {
+        pendingChanges.add(change);
+        if (!isApplyScheduled) {
+            isApplyScheduled = true;
+            executor.schedule(this::apply, APPLY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void apply() {
+
+        List<Runnable> changes;
+        synchronized (this) {
+            isApplyScheduled = false;
+            changes = new ArrayList<>(pendingChanges);
+            pendingChanges.clear();
+        }
+
+        // 모아둔 변경사항을 하나의 트랜잭션으로 반영한다 (테이블 구독자에게는 한 번만 알려진다)
+        try {
+            database.runInTransaction(() -> {
+                for (Runnable change : changes) {
+                    change.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private class ChunkedListener<T> {
+        // 문서 아이디 목록을 whereIn 쿼리 크기로 나누어 구독하고, 목록이 바뀌면 다시 등록한다
+
+        private final CollectionReference collection;
+        private final Function<DocumentSnapshot, T> converter;
+        private final Consumer<List<T>> upsert;
+        private final Consumer<List<String>> delete;
+
+        private final List<ListenerRegistration> chunkRegistrations = new ArrayList<>();
+        private Set<String> ids = new HashSet<>();
+
+        ChunkedListener(CollectionReference collection, Function<DocumentSnapshot, T> converter,
+                        Consumer<List<T>> upsert, Consumer<List<String>> delete) {
+            this.collection = collection;
+            this.converter = converter;
+            this.upsert = upsert;
+            this.delete = delete;
+        }
+
+        void setIds(List<String> newIds) {
+            Set<String> distinct = new HashSet<>(newIds);
+            if (distinct.equals(ids)) {
+                return;
+            }
+            clear();
+            ids = distinct;
+            for (List<String> chunk : FirestoreUtils.chunk(distinct)) {
+                Query query = collection.whereIn(FieldPath.documentId(), chunk);
+                chunkRegistrations.add(query.addSnapshotListener((snapshot, e) -> {
+                    if (e != null) {
+                        e.printStackTrace();
+                        return;
+                    }
+                    if (snapshot != null) {
+                        enqueue(snapshot, converter, upsert, delete);
+                    }
+                }));
+            }
+        }
+
+        void clear() {
+            for (ListenerRegistration registration : chunkRegistrations) {
+                registration.remove();
+            }
+            chunkRegistrations.clear();
+            ids = new HashSet<>();
+        }
+    }
+
+}
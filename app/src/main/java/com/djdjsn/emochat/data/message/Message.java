@@ -1,32 +1,72 @@
 package com.djdjsn.emochat.data.message;
 
 import androidx.annotation.NonNull;
-
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.djdjsn.emochat.utils.HybridLogicalClock;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Comparator;
 import java.util.Objects;
 
+@Entity(tableName = "messages", indices = {@Index(value = {"chatId", "created"})})
 public class Message {
 
-    private String id;
+    // 작성 시각 순, 같은 밀리초에서는 아이디(하이브리드 논리 시계) 순
+    public static final Comparator<Message> ORDER =
+            Comparator.comparingLong(Message::getCreated).thenComparing(Message::getId);
+
+    public static int compare(Message message, long created, String id) {
+        // 메세지와 (created, id) 커서의 순서를 비교한다 (빈 아이디는 같은 밀리초의 모든 메세지보다 앞)
+        int result = Long.compare(message.getCreated(), created);
+        return result != 0 ? result : message.getId().compareTo(id);
+    }
+
+    @PrimaryKey
+    @NonNull
+    private String id = "";
     private String chatId;
     private String uid;
     private String emojiUrl;
     private String content;
-    private boolean isRead;
     private long created;
+    @Ignore
+    @ServerTimestamp
+    private Timestamp updated;          // 서버에 쓰인 시각 (동기화 기준, 로컬 데이터베이스에는 저장하지 않음)
+    private boolean isPending;          // 서버에 아직 반영되지 않은 메세지 여부 (Firestore 에는 저장하지 않음)
+    private String searchTokens;        // 기기의 전문 검색 색인에 넣을 토큰 (Firestore 에는 저장하지 않음)
 
     public Message() {
     }
 
+    public static Message fromSnapshot(DocumentSnapshot snapshot) {
+        Message message = snapshot.toObject(Message.class);
+        if (message != null) {
+            message.isPending = snapshot.getMetadata().hasPendingWrites();
+        }
+        return message;
+    }
+
+    @Ignore
     public Message(String chatId, String uid, String emojiUrl, @NonNull String content) {
         this.chatId = chatId;
         this.uid = uid;
         this.emojiUrl = emojiUrl;
         this.content = content;
-        this.isRead = false;
-        this.created = System.currentTimeMillis();
-        this.id = created + "-" + chatId + "-" + uid;
+        // 아이디와 작성 시각을 같은 HLC 시각에서 만든다 (받은 메세지보다 항상 뒤에 정렬된다)
+        HybridLogicalClock clock = HybridLogicalClock.getInstance();
+        long time = clock.now();
+        this.created = HybridLogicalClock.millisOf(time);
+        this.id = clock.idOf(time);
     }
 
+    @NonNull
     public String getId() {
         return id;
     }
@@ -47,15 +87,20 @@ public class Message {
         return content;
     }
 
-    public boolean isRead() {
-        return isRead;
-    }
-
     public long getCreated() {
         return created;
     }
 
-    public void setId(String id) {
+    public Timestamp getUpdated() {
+        return updated;
+    }
+
+    @Exclude
+    public boolean isPending() {
+        return isPending;
+    }
+
+    public void setId(@NonNull String id) {
         this.id = id;
     }
 
@@ -75,25 +120,40 @@ public class Message {
         this.content = content;
     }
 
-    public void setRead(boolean read) {
-        isRead = read;
-    }
-
     public void setCreated(long created) {
         this.created = created;
     }
 
+    public void setUpdated(Timestamp updated) {
+        this.updated = updated;
+    }
+
+    @Exclude
+    public void setPending(boolean pending) {
+        isPending = pending;
+    }
+
+    @Exclude
+    public String getSearchTokens() {
+        return searchTokens;
+    }
+
+    @Exclude
+    public void setSearchTokens(String searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Message message = (Message) o;
-        return isRead == message.isRead && created == message.created && id.equals(message.id) && chatId.equals(message.chatId) && uid.equals(message.uid) && Objects.equals(emojiUrl, message.emojiUrl) && content.equals(message.content);
+        return created == message.created && isPending == message.isPending && id.equals(message.id) && chatId.equals(message.chatId) && uid.equals(message.uid) && Objects.equals(emojiUrl, message.emojiUrl) && content.equals(message.content);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, chatId, uid, emojiUrl, content, isRead, created);
+        return Objects.hash(id, chatId, uid, emojiUrl, content, created, isPending);
     }
 }
 
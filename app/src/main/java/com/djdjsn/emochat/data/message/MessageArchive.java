@@ -0,0 +1,75 @@
+package com.djdjsn.emochat.data.message;
+
+import java.util.List;
+
+public class MessageArchive {
+    // 오래된 메세지 여러 개를 한 문서에 묶어 저장하는 보관 문서 (chats/{chatId}/archives/{id})
+    // 스크롤하여 이전 기록을 볼 때 메세지 수백 개를 문서 한 번의 읽기로 불러온다
+
+    private String id;                  // 가장 오래된 메세지의 아이디 (여러 기기에서 묶어도 같은 문서가 된다)
+    private String chatId;
+    private long fromMillis;            // 가장 오래된 메세지의 작성 시각
+    private long toMillis;              // 가장 최근 메세지의 작성 시각
+    private int count;
+    private List<Message> messages;     // 오래된 순으로 정렬
+
+    public MessageArchive() {
+    }
+
+    public MessageArchive(String chatId, List<Message> messages) {
+        this.id = messages.get(0).getId();
+        this.chatId = chatId;
+        this.fromMillis = messages.get(0).getCreated();
+        this.toMillis = messages.get(messages.size() - 1).getCreated();
+        this.count = messages.size();
+        this.messages = messages;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setChatId(String chatId) {
+        this.chatId = chatId;
+    }
+
+    public void setFromMillis(long fromMillis) {
+        this.fromMillis = fromMillis;
+    }
+
+    public void setToMillis(long toMillis) {
+        this.toMillis = toMillis;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+}
@@ -0,0 +1,186 @@
+package com.djdjsn.emochat.data.message;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class MessageArchiver {
+    // 작성된 지 오래된 메세지를 보관 문서로 묶고 개별 메세지 문서는 지우는 클래스
+    // 보관 문서 저장, 메세지 삭제, 채팅방의 archivedUntil 갱신을 하나의 배치로 처리하므로 중간 상태가 보이지 않는다
+    // 가득 찬 묶음만 만들고, 남은 메세지는 충분히 쌓일 때까지 그대로 둔다
+    // 채팅방 문서의 (archivedUntil, archivedUntilId) 는 마지막으로 묶은 메세지이며, 그 다음 메세지부터 이어서 묶는다
+
+    public static final long ARCHIVE_AFTER_MILLIS = TimeUnit.DAYS.toMillis(30);    // 이보다 오래된 메세지를 보관
+    public static final int MAX_ARCHIVE_MESSAGES = 300;         // 보관 문서 하나의 메세지 수 (삭제 포함 배치 최대 500개)
+    public static final int MAX_ARCHIVE_BYTES = 800 * 1024;     // 보관 문서 하나의 예상 크기 (문서 최대 1MiB)
+    private static final int MESSAGE_OVERHEAD_BYTES = 112;      // 메세지 하나의 필드 이름과 숫자, 시각 값의 대략적인 크기
+
+    private final FirebaseFirestore firestore;
+    private final MessageRepository messageRepository;
+
+    private final Set<String> archivingChatIds = new HashSet<>();      // 보관 중인 채팅방 (중복 실행 방지)
+    private final Set<String> checkedChatIds = new HashSet<>();        // 이번 실행에서 더 묶을 메세지가 없다고 확인한 채팅방
+
+    @Inject
+    public MessageArchiver(FirebaseFirestore firestore, MessageRepository messageRepository) {
+        this.firestore = firestore;
+        this.messageRepository = messageRepository;
+    }
+
+    public void archiveOldMessages(String chatId) {
+
+        // 채팅방마다 실행 중 한 번만 확인한다 (묶을 메세지가 모자라면 다음 실행까지 다시 세지 않음)
+        if (chatId == null || checkedChatIds.contains(chatId) || !archivingChatIds.add(chatId)) {
+            return;
+        }
+        firestore.collection("chats").document(chatId).get()
+                .addOnSuccessListener(chat -> {
+                    Long archivedUntil = chat.getLong("archivedUntil");
+                    archiveNext(chatId, archivedUntil != null ? archivedUntil : 0, chat.getString("archivedUntilId"));
+                })
+                .addOnFailureListener(e -> {
+                    e.printStackTrace();
+                    archivingChatIds.remove(chatId);
+                });
+    }
+
+    private void archiveNext(String chatId, long archivedUntil, String archivedUntilId) {
+
+        // 보관 경계 이후의 오래된 메세지 수를 먼저 센다 (집계 조회는 문서 1000개당 읽기 1회)
+        // 한 묶음이 되지 않으면 메세지를 읽지 않고 끝낸다
+        long threshold = System.currentTimeMillis() - ARCHIVE_AFTER_MILLIS;
+        CollectionReference messageCollection = messageRepository.getMessageCollection(chatId);
+        messageCollection
+                .whereGreaterThan("created", archivedUntil)
+                .whereLessThan("created", threshold)
+                .count()
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.getCount() < MAX_ARCHIVE_MESSAGES) {
+                        checkedChatIds.add(chatId);
+                        archivingChatIds.remove(chatId);
+                        return;
+                    }
+                    packNext(chatId, archivedUntil, archivedUntilId, threshold);
+                })
+                .addOnFailureListener(e -> {
+                    e.printStackTrace();
+                    archivingChatIds.remove(chatId);
+                });
+    }
+
+    private void packNext(String chatId, long archivedUntil, String archivedUntilId, long threshold) {
+
+        // 보관 경계 (archivedUntil, archivedUntilId) 다음의 메세지만 묶으므로 보관 문서끼리 범위가 겹치지 않는다
+        // 경계보다 늦게 도착한 메세지는 하위 컬렉션에 그대로 두고, 읽을 때 보관 문서와 합친다
+        Query query = messageRepository.getMessageCollection(chatId)
+                .whereLessThan("created", threshold)
+                .orderBy("created", Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+        if (archivedUntilId != null && !archivedUntilId.isEmpty()) {
+            query = query.startAfter(archivedUntil, archivedUntilId);
+        } else if (archivedUntil > 0) {
+            query = query.startAfter(archivedUntil);
+        }
+        query.limit(MAX_ARCHIVE_MESSAGES)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    List<Message> bucket = new ArrayList<>();
+                    List<DocumentSnapshot> documents = new ArrayList<>();
+                    int bytes = 0;
+                    boolean isFull = false;
+                    for (DocumentSnapshot document : snapshots.getDocuments()) {
+                        Message message = document.toObject(Message.class);
+                        if (message == null) {
+                            continue;
+                        }
+                        if (message.getUpdated() == null) {
+                            // 배열 안에는 서버 시각을 쓸 수 없으므로 서버 시각이 없는 예전 메세지는 작성 시각으로 채운다
+                            message.setUpdated(new Timestamp(new Date(message.getCreated())));
+                        }
+                        int size = sizeOf(message);
+                        if (bytes + size > MAX_ARCHIVE_BYTES) {
+                            isFull = true;
+                            break;
+                        }
+                        bytes += size;
+                        bucket.add(message);
+                        documents.add(document);
+                    }
+                    if (bucket.size() >= MAX_ARCHIVE_MESSAGES) {
+                        isFull = true;
+                    }
+                    if (!isFull || bucket.isEmpty()) {
+                        checkedChatIds.add(chatId);
+                        archivingChatIds.remove(chatId);
+                        return;
+                    }
+
+                    MessageArchive archive = new MessageArchive(chatId, bucket);
+                    Message last = bucket.get(bucket.size() - 1);
+                    WriteBatch batch = firestore.batch();
+                    batch.set(messageRepository.getArchiveCollection(chatId).document(archive.getId()), archive);
+                    for (DocumentSnapshot document : documents) {
+                        batch.delete(document.getReference());
+                    }
+                    batch.update(firestore.collection("chats").document(chatId),
+                            "archivedUntil", last.getCreated(),
+                            "archivedUntilId", last.getId());
+                    batch.commit()
+                            .addOnSuccessListener(unused -> archiveNext(chatId, last.getCreated(), last.getId()))
+                            .addOnFailureListener(e -> {
+                                e.printStackTrace();
+                                archivingChatIds.remove(chatId);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    e.printStackTrace();
+                    archivingChatIds.remove(chatId);
+                });
+    }
+
+    private static int sizeOf(Message message) {
+        // Firestore 문서 크기 계산 방식에 따라 문자열은 UTF-8 바이트 수 + 1 로 센다
+        return MESSAGE_OVERHEAD_BYTES
+                + utf8Length(message.getId()) + utf8Length(message.getChatId()) + utf8Length(message.getUid())
+                + utf8Length(message.getEmojiUrl()) + utf8Length(message.getContent());
+    }
+
+    private static int utf8Length(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                length += 1;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length + 1;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.djdjsn.emochat.data.message;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+@Dao
+public interface MessageDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(List<Message> messages);
+
+    @Transaction
+    default void upsert(List<Message> messages) {
+        // 검색용 토큰을 채워서 저장한다 (FTS 색인은 트리거가 갱신)
+        for (Message message : messages) {
+            message.setSearchTokens(MessageSearch.tokenize(message.getContent()));
+        }
+        insert(messages);
+    }
+
+    @Query("DELETE FROM messages")
+    void deleteAll();
+
+    // (chatId, created) 인덱스를 따라 최근 메세지부터 읽는다 (같은 밀리초는 아이디 순)
+    @Query("SELECT * FROM messages WHERE chatId = :chatId ORDER BY created DESC, id DESC LIMIT :limit")
+    LiveData<List<Message>> getRecentIn(String chatId, int limit);
+
+    // (created, id) 순서로 커서 앞뒤를 읽는다 (같은 밀리초의 메세지를 건너뛰지 않도록 아이디까지 비교)
+    @Query("SELECT * FROM messages WHERE chatId = :chatId " +
+            "AND (created < :beforeCreated OR (created = :beforeCreated AND id < :beforeId)) " +
+            "ORDER BY created DESC, id DESC LIMIT :limit")
+    List<Message> getBefore(String chatId, long beforeCreated, String beforeId, int limit);
+
+    @Query("SELECT * FROM messages WHERE chatId = :chatId " +
+            "AND (created > :afterCreated OR (created = :afterCreated AND id > :afterId)) " +
+            "ORDER BY created ASC, id ASC LIMIT :limit")
+    List<Message> getAfter(String chatId, long afterCreated, String afterId, int limit);
+
+    // 회원이 보낸 메세지 중 가장 최근 것 (없으면 null)
+    @Query("SELECT * FROM messages WHERE uid = :uid ORDER BY created DESC, id DESC LIMIT 1")
+    Message getLatestOf(String uid);
+
+    // 서버에 반영된 메세지 중 가장 최근 것의 작성 시각 (없으면 null)
+    @Query("SELECT MAX(created) FROM messages WHERE chatId = :chatId AND isPending = 0")
+    Long getLatestCreated(String chatId);
+
+    // 검색 토큰을 모두 포함하는 메세지를 최근 순으로 불러온다 (점수는 matchinfo 로 계산)
+    @Query("SELECT messages.*, matchinfo(messages_fts, 'pcnalx') AS matchInfo FROM messages " +
+            "INNER JOIN messages_fts ON messages.rowid = messages_fts.docid " +
+            "WHERE messages_fts MATCH :match ORDER BY messages.created DESC LIMIT :limit")
+    List<MessageMatch> search(String match, int limit);
+
+}
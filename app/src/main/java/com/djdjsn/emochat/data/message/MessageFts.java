@@ -0,0 +1,21 @@
+package com.djdjsn.emochat.data.message;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+@Fts4(contentEntity = Message.class)
+@Entity(tableName = "messages_fts")
+public class MessageFts {
+    // messages 테이블의 검색용 토큰을 색인하는 FTS 테이블
+    // Room 이 만든 트리거가 메세지 추가/수정/삭제 시 색인을 함께 갱신한다
+
+    private final String searchTokens;
+
+    public MessageFts(String searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+
+    public String getSearchTokens() {
+        return searchTokens;
+    }
+}
@@ -0,0 +1,24 @@
+package com.djdjsn.emochat.data.message;
+
+import androidx.room.Embedded;
+
+public class MessageMatch {
+    // 전문 검색으로 찾은 메세지와 점수 계산에 쓰는 FTS matchinfo 값
+
+    @Embedded
+    private final Message message;
+    private final byte[] matchInfo;
+
+    public MessageMatch(Message message, byte[] matchInfo) {
+        this.message = message;
+        this.matchInfo = matchInfo;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public byte[] getMatchInfo() {
+        return matchInfo;
+    }
+}
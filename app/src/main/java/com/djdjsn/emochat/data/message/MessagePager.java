@@ -0,0 +1,283 @@
+package com.djdjsn.emochat.data.message;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+public class MessagePager {
+    // 채팅방 메세지를 최근 구간(실시간 리스너)과 페이지 단위로 불러온 구간으로 나누어 관리하는 클래스
+    // 페이지가 최근 구간에 이어져 있으면 함께 보여주고, 검색 결과로 이동했거나 위로 스크롤하며 최근 쪽 페이지를 해제했으면
+    // 떨어진 구간만 보여준다 (아래로 스크롤하면 다음 페이지를 불러오고, 최근 구간에 닿으면 다시 잇는다)
+    // 메모리에는 MAX_PAGES 개의 페이지만 두고, 넘치면 스크롤 반대쪽 끝의 페이지를 해제한다 (돌아오면 다시 불러온다)
+
+    public static final int PAGE_SIZE = 50;             // 한 페이지의 메세지 수
+    public static final int MAX_PAGES = 10;             // 메모리에 유지할 페이지의 최대 수
+
+    private final MessageRepository messageRepository;
+    private final String chatId;
+
+    private final MediatorLiveData<List<Message>> messages = new MediatorLiveData<>();
+
+    private List<Message> recent;                                       // 실시간으로 갱신되는 최근 메세지
+    private final List<Message> spilled = new ArrayList<>();            // 최근 구간에서 밀려난 메세지
+    private final LinkedList<List<Message>> pages = new LinkedList<>(); // 불러온 페이지 (앞쪽일수록 오래된 페이지)
+    private boolean isAttached = true;                                  // 페이지가 최근 구간에 이어져 있는지 여부
+
+    private boolean hasMoreOlder = true;
+    private boolean isLoadingOlder = false;
+    private boolean isLoadingNewer = false;
+
+    @Singleton
+    public static class Factory {
+        // 화면에서 저장소에 직접 의존하지 않고 채팅방별 페이저를 만들 수 있도록 한다
+
+        private final MessageRepository messageRepository;
+
+        @Inject
+        public Factory(MessageRepository messageRepository) {
+            this.messageRepository = messageRepository;
+        }
+
+        public MessagePager create(String chatId) {
+            return new MessagePager(messageRepository, chatId);
+        }
+    }
+
+    public MessagePager(MessageRepository messageRepository, String chatId) {
+        this.messageRepository = messageRepository;
+        this.chatId = chatId;
+
+        messages.addSource(messageRepository.getRecentMessagesIn(chatId, PAGE_SIZE), this::onRecentChanged);
+    }
+
+    public LiveData<List<Message>> getMessages() {
+        return messages;
+    }
+
+    public boolean isShowingContext() {
+        // 최근 구간과 떨어진 구간을 보여주는 중인지 여부 (아래로 스크롤하면 loadNewer 로 이어 붙인다)
+        return !isAttached;
+    }
+
+    public void jumpTo(long anchorMillis) {
+
+        // anchorMillis 에 작성된 메세지 앞뒤로 반 페이지씩 불러와서 최근 구간 대신 보여준다
+        messageRepository.getMessagesAround(chatId, anchorMillis, PAGE_SIZE / 2,
+                page -> {
+                    if (page.isEmpty()) {
+                        return;
+                    }
+                    // 진행 중이던 로드는 이어지는 메세지가 달라지므로 결과를 버린다
+                    pages.clear();
+                    pages.add(new ArrayList<>(page));
+                    spilled.clear();
+                    isAttached = false;
+                    hasMoreOlder = true;
+                    publish();
+                },
+                Throwable::printStackTrace);
+    }
+
+    public void loadNewer() {
+
+        // 떨어진 구간의 가장 최근 메세지 이후의 페이지를 불러오고, 최근 구간에 닿으면 다시 잇는다
+        if (isAttached || isLoadingNewer || pages.isEmpty()) {
+            return;
+        }
+
+        Message newest = getNewestLoaded();
+        isLoadingNewer = true;
+        messageRepository.getMessagesAfter(chatId, newest.getCreated(), newest.getId(), PAGE_SIZE,
+                page -> {
+                    isLoadingNewer = false;
+                    if (isAttached || getNewestLoaded() != newest) {
+                        // 그 사이 구간이 바뀌었으면 이어지지 않는 페이지이므로 버린다
+                        return;
+                    }
+                    boolean reachedRecent = page.size() < PAGE_SIZE || (recent != null && !recent.isEmpty()
+                            && Message.ORDER.compare(page.get(page.size() - 1), recent.get(0)) >= 0);
+                    if (!page.isEmpty()) {
+                        pages.addLast(new ArrayList<>(page));
+                    }
+                    if (reachedRecent) {
+                        attach();
+                    }
+                    while (pages.size() > MAX_PAGES) {
+                        pages.removeFirst();
+                        hasMoreOlder = true;
+                    }
+                    publish();
+                },
+                e -> {
+                    isLoadingNewer = false;
+                    e.printStackTrace();
+                });
+    }
+
+    public void loadOlder() {
+
+        // 현재 가장 오래된 메세지 이전의 페이지를 불러온다
+        if ((recent == null && pages.isEmpty()) || isLoadingOlder || !hasMoreOlder) {
+            return;
+        }
+
+        Message oldest = getOldestMessage();
+        if (oldest == null) {
+            hasMoreOlder = false;
+            return;
+        }
+
+        isLoadingOlder = true;
+        messageRepository.getMessagesBefore(chatId, oldest.getCreated(), oldest.getId(), PAGE_SIZE,
+                page -> {
+                    isLoadingOlder = false;
+                    if (getOldestMessage() != oldest) {
+                        // 그 사이 구간이 바뀌었으면 이어지지 않는 페이지이므로 버린다
+                        return;
+                    }
+                    if (page.size() < PAGE_SIZE) {
+                        hasMoreOlder = false;
+                    }
+                    if (page.isEmpty()) {
+                        return;
+                    }
+                    pages.addFirst(new ArrayList<>(page));
+                    // 페이지가 넘치면 최근 쪽 끝을 해제한다 (최근 구간과 이어져 있었다면 떨어진 구간이 된다)
+                    while (pages.size() > MAX_PAGES) {
+                        if (isAttached) {
+                            isAttached = false;
+                            spilled.clear();
+                        }
+                        pages.removeLast();
+                    }
+                    publish();
+                },
+                e -> {
+                    isLoadingOlder = false;
+                    e.printStackTrace();
+                });
+    }
+
+    public void releaseOlderPages() {
+
+        // 최근 구간으로 돌아왔을 때 이전 페이지를 메모리에서 해제한다
+        if (!isAttached || (pages.isEmpty() && spilled.isEmpty())) {
+            return;
+        }
+        pages.clear();
+        spilled.clear();
+        hasMoreOlder = true;
+        publish();
+    }
+
+    private void onRecentChanged(List<Message> value) {
+
+        if (value == null) {
+            recent = null;
+            messages.setValue(null);
+            return;
+        }
+
+        if (!isAttached) {
+            // 떨어진 구간을 보여주는 동안에는 최근 구간만 바꿔둔다 (사이의 메세지는 loadNewer 가 불러온다)
+            recent = value;
+            return;
+        }
+
+        if (recent != null && !pages.isEmpty()) {
+            // 이전 페이지가 로드된 상태라면 최근 구간에서 밀려난 메세지를 보존하여 공백이 생기지 않도록 한다
+            Message oldestRecent = value.isEmpty() ? null : value.get(0);
+            Set<String> ids = new HashSet<>();
+            for (Message message : value) {
+                ids.add(message.getId());
+            }
+            for (Message message : recent) {
+                if (!ids.contains(message.getId())
+                        && (oldestRecent == null || Message.ORDER.compare(message, oldestRecent) <= 0)) {
+                    spilled.add(message);
+                }
+            }
+            if (spilled.size() >= PAGE_SIZE) {
+                pages.addLast(new ArrayList<>(spilled));
+                spilled.clear();
+                while (pages.size() > MAX_PAGES) {
+                    pages.removeFirst();
+                    hasMoreOlder = true;
+                }
+            }
+        } else if (pages.isEmpty()) {
+            hasMoreOlder = value.size() >= PAGE_SIZE;
+        }
+
+        recent = value;
+        publish();
+    }
+
+    private Message getOldestMessage() {
+        if (!pages.isEmpty()) {
+            return pages.getFirst().get(0);
+        }
+        if (!spilled.isEmpty()) {
+            return spilled.get(0);
+        }
+        return (recent != null && !recent.isEmpty()) ? recent.get(0) : null;
+    }
+
+    private Message getNewestLoaded() {
+        if (pages.isEmpty()) {
+            return null;
+        }
+        List<Message> last = pages.getLast();
+        return last.get(last.size() - 1);
+    }
+
+    private void attach() {
+
+        // 최근 구간과 겹치는 메세지를 페이지에서 빼고 최근 구간에 다시 잇는다
+        isAttached = true;
+        spilled.clear();
+        if (recent == null || recent.isEmpty()) {
+            return;
+        }
+        Message oldestRecent = recent.get(0);
+        while (!pages.isEmpty()) {
+            List<Message> last = pages.getLast();
+            while (!last.isEmpty() && Message.ORDER.compare(last.get(last.size() - 1), oldestRecent) >= 0) {
+                last.remove(last.size() - 1);
+            }
+            if (!last.isEmpty()) {
+                break;
+            }
+            pages.removeLast();
+        }
+    }
+
+    private void publish() {
+
+        if (recent == null && pages.isEmpty()) {
+            return;
+        }
+
+        List<Message> list = new ArrayList<>();
+        for (List<Message> page : pages) {
+            list.addAll(page);
+        }
+        if (isAttached) {
+            list.addAll(spilled);
+            if (recent != null) {
+                list.addAll(recent);
+            }
+        }
+        messages.setValue(Collections.unmodifiableList(list));
+    }
+
+}
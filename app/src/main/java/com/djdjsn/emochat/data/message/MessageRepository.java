@@ -1,136 +1,478 @@
 package com.djdjsn.emochat.data.message;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
+import com.djdjsn.emochat.data.chat.Chat;
+import com.djdjsn.emochat.data.chat.ChatDao;
 import com.djdjsn.emochat.data.chatannotation.ChatAnnotation;
 import com.djdjsn.emochat.data.chatannotation.ChatAnnotationRepository;
+import com.djdjsn.emochat.data.messagenotice.MessageNotice;
+import com.djdjsn.emochat.data.messagenotice.MessageNoticeRepository;
+import com.djdjsn.emochat.utils.firestore.FirestoreUtils;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class MessageRepository {
-
-    private final CollectionReference messageCollection;
+    // 메세지는 채팅방 문서 아래의 하위 컬렉션(chats/{chatId}/messages)에 저장한다
+    // 기존 전역 messages 컬렉션의 메세지는 채팅방을 열 때 하위 컬렉션으로 복사하고,
+    // 복사가 끝나지 않은(messagesMigrated 가 false 인) 채팅방은 두 곳을 함께 읽는다
+    // 예전 버전 앱은 복사가 끝난 뒤에도 전역 컬렉션에 쓰므로, 그런 앱이 남아 있는 동안(원격 설정 legacyWritersActive)은
+    // SyncEngine 이 전역 컬렉션을 계속 구독하고 하위 컬렉션에 없는 새 메세지를 다시 복사한다
+    // 오래된 메세지는 MessageArchiver 가 보관 문서(chats/{chatId}/archives)로 묶으므로,
+    // 읽는 범위가 보관 범위에 닿으면 보관 문서도 읽어 하위 컬렉션에 남은 메세지와 합친다
+    // 기기의 사본은 MessageSync 의 빠짐없는 범위 안에서만 믿고, 그 밖은 서버에서 읽는다
+
+    public static final int MIGRATION_BATCH_SIZE = 400;     // 한 배치로 복사할 메세지 수 (배치 최대 500개)
+
+    private final CollectionReference chatCollection;
+    private final CollectionReference legacyMessageCollection;
     private final ChatAnnotationRepository chatAnnotationRepository;
+    private final MessageNoticeRepository messageNoticeRepository;
+    private final MessageDao messageDao;
+    private final MessageSyncDao messageSyncDao;
+    private final ChatDao chatDao;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Set<String> migratingChatIds = new HashSet<>();       // 이번 실행에서 복사를 시작한 채팅방
 
     @Inject
-    public MessageRepository(FirebaseFirestore firestore, ChatAnnotationRepository chatAnnotationRepository) {
-        messageCollection = firestore.collection("messages");
+    public MessageRepository(FirebaseFirestore firestore,
+                             ChatAnnotationRepository chatAnnotationRepository,
+                             MessageNoticeRepository messageNoticeRepository,
+                             MessageDao messageDao,
+                             MessageSyncDao messageSyncDao,
+                             ChatDao chatDao) {
+        chatCollection = firestore.collection("chats");
+        legacyMessageCollection = firestore.collection("messages");
         this.chatAnnotationRepository = chatAnnotationRepository;
+        this.messageNoticeRepository = messageNoticeRepository;
+        this.messageDao = messageDao;
+        this.messageSyncDao = messageSyncDao;
+        this.chatDao = chatDao;
     }
 
-    public void addMessage(Message message,
-                           OnSuccessListener<Void> onSuccessListener,
-                           OnFailureListener onFailureListener) {
-
-        messageCollection.document(message.getId())
-                .set(message)
-                .addOnSuccessListener(unused -> {
-                    ChatAnnotation preview = new ChatAnnotation(
-                            message.getChatId(), message.getUid(),
-                            message.getContent(), message.getCreated());
-                    chatAnnotationRepository.addAnnotation(preview, onSuccessListener, e -> {
-                        e.printStackTrace();
-                        onSuccessListener.onSuccess(null);
-                    });
-                })
-                .addOnFailureListener(onFailureListener);
+    public CollectionReference getMessageCollection(String chatId) {
+        // 채팅방의 메세지 하위 컬렉션 (created 범위 조회에 복합 색인이 필요 없음)
+        return chatCollection.document(chatId).collection("messages");
     }
 
-    public void updateMessagesAsRead(String chatId, String senderUid) {
+    public CollectionReference getArchiveCollection(String chatId) {
+        // 오래된 메세지를 묶어 둔 보관 문서
+        return chatCollection.document(chatId).collection("archives");
+    }
 
-        messageCollection.whereEqualTo("chatId", chatId)
-                .whereEqualTo("uid", senderUid)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    for (DocumentSnapshot snapshot : queryDocumentSnapshots) {
-                        messageCollection.document(snapshot.getId()).update("read", true);
-                    }
-                });
+    public Query getLegacyMessageQuery(String chatId) {
+        // 아직 옮기지 않은 채팅방의 기존 전역 컬렉션 메세지
+        return legacyMessageCollection.whereEqualTo("chatId", chatId);
     }
 
-    public LiveData<List<Message>> getMessages(List<String> messageIds) {
+    public void addMessage(WriteBatch batch, Message message, String senderNickname, String receiverUid) {
 
-        MutableLiveData<List<Message>> data = new MutableLiveData<>();
+        // 메세지, 채팅방 요약 정보, 수신 알림을 하나의 배치에 추가한다
+        // 메세지의 updated 는 서버 시각으로 채워지며, SyncEngine 은 이 시각으로 늦게 도착한 메세지까지 받는다
+        batch.set(getMessageCollection(message.getChatId()).document(message.getId()), message);
 
-        messageCollection.addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-            }
-            if (error != null || value == null) {
-                data.setValue(null);
-                return;
-            }
-            List<Message> messages = new ArrayList<>();
-            for (DocumentSnapshot snapshot : value) {
-                Message message = snapshot.toObject(Message.class);
-                if (message != null) {
-                    if (messageIds != null && !messageIds.contains(message.getId())) {
-                        continue;
-                    }
-                    messages.add(message);
-                }
-            }
-            data.setValue(messages);
-        });
+        ChatAnnotation preview = new ChatAnnotation(
+                message.getChatId(), message.getUid(),
+                message.getContent(), message.getCreated());
+        chatAnnotationRepository.addAnnotation(batch, preview);
 
-        return data;
+        // 알림을 받는 쪽에서 회원정보를 다시 읽지 않도록 닉네임과 미리보기를 함께 저장한다
+        MessageNotice notice = new MessageNotice(message.getId(), message.getChatId(),
+                message.getUid(), senderNickname, receiverUid,
+                MessageNotice.previewOf(message.getContent(), message.getEmojiUrl() != null));
+        messageNoticeRepository.addNotice(batch, notice);
     }
 
-    public LiveData<List<Message>> getMessagesIn(String chatId) {
+    public LiveData<List<Message>> getRecentMessagesIn(String chatId, int limit) {
 
+        // 가장 최근 메세지 limit 개를 실시간으로 불러온다 (오래된 순으로 정렬)
         MutableLiveData<List<Message>> data = new MutableLiveData<>();
         if (chatId == null) {
             data.setValue(null);
             return data;
         }
 
-        messageCollection
-                .whereEqualTo("chatId", chatId)
-                .orderBy("created", Query.Direction.ASCENDING)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        error.printStackTrace();
-                        data.setValue(null);
-                        return;
-                    }
-                    if (value == null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    data.setValue(value.toObjects(Message.class));
-                });
+        // SyncEngine 이 동기화한 로컬 사본을 구독한다 (보낸 메세지는 서버 반영 전에도 pending 상태로 저장된다)
+        LiveData<List<Message>> local = Transformations.distinctUntilChanged(messageDao.getRecentIn(chatId, limit));
+        return Transformations.map(local, _messages -> {
+            if (_messages == null) {
+                return null;
+            }
+            List<Message> messages = new ArrayList<>(_messages);
+            Collections.reverse(messages);
+            return messages;
+        });
+    }
 
-        return data;
+    public void getMessagesBefore(String chatId, long beforeCreated, String beforeId, int limit,
+                                  OnSuccessListener<List<Message>> onSuccessListener,
+                                  OnFailureListener onFailureListener) {
+
+        // (beforeCreated, beforeId) 이전의 메세지 limit 개를 한 번 불러온다 (오래된 순으로 정렬)
+        // 빠짐없이 받은 범위(MessageSync) 안의 메세지로 한 페이지가 채워지면 바로 돌려주고,
+        // 아니면 서버에서 불러와 기기에 저장한다 (늦게 도착한 메세지만 흩어져 있는 범위를 완전한 페이지로 보지 않는다)
+        executor.execute(() -> {
+            Chat chat = chatDao.findChat(chatId);
+            boolean isMigrated = chat != null && chat.isMessagesMigrated();
+            long archivedUntil = chat != null ? chat.getArchivedUntil() : 0;
+            MessageSync sync = isMigrated ? messageSyncDao.find(chatId) : null;
+            boolean isCursorCovered = sync != null && sync.isCovered(beforeCreated, beforeId);
+            if (isCursorCovered) {
+                List<Message> local = new ArrayList<>();
+                for (Message message : messageDao.getBefore(chatId, beforeCreated, beforeId, limit)) {
+                    if (sync.isCovered(message.getCreated(), message.getId())) {
+                        local.add(message);
+                    }
+                }
+                if (local.size() >= limit || sync.isFullyCovered()) {
+                    Collections.reverse(local);
+                    handler.post(() -> onSuccessListener.onSuccess(local));
+                    return;
+                }
+            }
+            handler.post(() -> queryMessages(chatId, isMigrated,
+                    query -> startAfter(query, Query.Direction.DESCENDING, beforeCreated, beforeId).limit(limit),
+                    limit, true,
+                    live -> {
+                        executor.execute(() -> messageDao.upsert(live));
+                        OnSuccessListener<List<Message>> onLoaded = messages -> {
+                            if (isCursorCovered) {
+                                // 빠짐없는 범위에 이어서 받았으므로 범위를 넓힌다 (한 페이지가 안 되면 첫 메세지까지)
+                                Message oldest = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+                                boolean isComplete = messages.size() < limit;
+                                executor.execute(() -> messageSyncDao.extendCovered(chatId,
+                                        isComplete ? 0 : oldest.getCreated(), isComplete ? "" : oldest.getId()));
+                            }
+                            List<Message> ordered = new ArrayList<>(messages);
+                            Collections.reverse(ordered);
+                            onSuccessListener.onSuccess(ordered);
+                        };
+                        // 하위 컬렉션만으로 보관 범위보다 최근인 한 페이지가 채워지면 보관 문서는 읽지 않는다
+                        // 아니면 같은 커서로 보관 문서도 읽어 합친다 (보관 범위 안에 늦게 도착한 메세지가 있어도 건너뛰지 않음)
+                        boolean isLiveEnough = live.size() >= limit
+                                && live.get(live.size() - 1).getCreated() > archivedUntil;
+                        if (isLiveEnough) {
+                            onLoaded.onSuccess(live);
+                            return;
+                        }
+                        readArchives(chatId, beforeCreated, beforeId, limit, true, null, new ArrayList<>(),
+                                archived -> onLoaded.onSuccess(merge(live, archived, limit, true)),
+                                onFailureListener);
+                    },
+                    onFailureListener));
+        });
     }
 
-}
+    public void getMessagesAfter(String chatId, long afterCreated, String afterId, int limit,
+                                 OnSuccessListener<List<Message>> onSuccessListener,
+                                 OnFailureListener onFailureListener) {
+
+        // (afterCreated, afterId) 이후의 메세지 limit 개를 한 번 불러온다 (오래된 순으로 정렬)
+        // 커서가 빠짐없이 받은 범위(MessageSync) 안에 있으면 기기에서 읽고, 아니면 서버에서 불러와 기기에 저장한다
+        executor.execute(() -> {
+            Chat chat = chatDao.findChat(chatId);
+            boolean isMigrated = chat != null && chat.isMessagesMigrated();
+            long archivedUntil = chat != null ? chat.getArchivedUntil() : 0;
+            MessageSync sync = isMigrated ? messageSyncDao.find(chatId) : null;
+            if (sync != null && sync.isCovered(afterCreated, afterId)) {
+                List<Message> local = messageDao.getAfter(chatId, afterCreated, afterId, limit);
+                handler.post(() -> onSuccessListener.onSuccess(local));
+                return;
+            }
+            handler.post(() -> {
+                // 보관 범위 안에서 시작하면 같은 커서로 보관 문서와 하위 컬렉션을 모두 읽어 합친다
+                OnSuccessListener<List<Message>> readLive = archived -> queryMessages(chatId, isMigrated,
+                        query -> startAfter(query, Query.Direction.ASCENDING, afterCreated, afterId).limit(limit),
+                        limit, false,
+                        live -> {
+                            executor.execute(() -> messageDao.upsert(live));
+                            List<Message> messages = merge(live, archived, limit, false);
+                            // 받은 범위가 빠짐없는 범위에 닿으면 범위를 받은 첫 메세지까지 넓힌다
+                            boolean isContiguous = messages.size() < limit || (sync != null
+                                    && sync.isCovered(messages.get(messages.size() - 1).getCreated(),
+                                    messages.get(messages.size() - 1).getId()));
+                            if (isMigrated && isContiguous && !messages.isEmpty()) {
+                                Message first = messages.get(0);
+                                executor.execute(() -> messageSyncDao.extendCovered(chatId, first.getCreated(), first.getId()));
+                            }
+                            onSuccessListener.onSuccess(messages);
+                        },
+                        onFailureListener);
+                if (afterCreated <= archivedUntil) {
+                    readArchives(chatId, afterCreated, afterId, limit, false, null, new ArrayList<>(), readLive, onFailureListener);
+                } else {
+                    readLive.onSuccess(new ArrayList<>());
+                }
+            });
+        });
+    }
 
+    public void getMessagesAround(String chatId, long anchorMillis, int limit,
+                                  OnSuccessListener<List<Message>> onSuccessListener,
+                                  OnFailureListener onFailureListener) {
+
+        // anchorMillis 에 작성된 메세지를 포함하여 앞뒤로 limit 개씩 불러온다 (오래된 순으로 정렬)
+        // 앞쪽은 anchorMillis 의 모든 메세지를 포함하고, 뒤쪽은 앞쪽의 마지막 메세지 다음부터 읽어 겹치거나 빠지지 않게 한다
+        getMessagesBefore(chatId, anchorMillis + 1, "", limit,
+                older -> {
+                    Message last = older.isEmpty() ? null : older.get(older.size() - 1);
+                    getMessagesAfter(chatId,
+                            last == null ? anchorMillis : last.getCreated(),
+                            last == null ? "" : last.getId(),
+                            limit,
+                            newer -> {
+                                List<Message> messages = new ArrayList<>(older);
+                                messages.addAll(newer);
+                                onSuccessListener.onSuccess(messages);
+                            },
+                            onFailureListener);
+                },
+                onFailureListener);
+    }
 
+    public void searchMessages(String query, OnSuccessListener<List<Message>> onSuccessListener) {
 
+        // 기기에 저장된 메세지에서 검색어를 찾아 점수 순으로 돌려준다 (서버는 조회하지 않음)
+        String match = MessageSearch.matchQueryOf(query);
+        if (match == null) {
+            onSuccessListener.onSuccess(new ArrayList<>());
+            return;
+        }
+        executor.execute(() -> {
+            List<Message> ranked;
+            try {
+                ranked = MessageSearch.rank(messageDao.search(match, MessageSearch.MAX_CANDIDATES), query);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                ranked = null;
+            }
+            List<Message> result = ranked;
+            handler.post(() -> onSuccessListener.onSuccess(result));
+        });
+    }
 
+    public void migrateMessagesOf(String chatId) {
 
+        // 기존 전역 컬렉션에 있는 채팅방의 메세지를 하위 컬렉션으로 복사한 뒤 채팅방에 완료 표시를 한다
+        // 같은 아이디로 덮어쓰므로 여러 기기에서 동시에 실행되어도 결과는 같다 (기존 문서는 지우지 않음)
+        if (chatId == null || !migratingChatIds.add(chatId)) {
+            return;
+        }
+        copyLegacyMessages(chatId, null);
+    }
 
+    private void copyLegacyMessages(String chatId, DocumentSnapshot last) {
 
+        // 정렬 없이 동등 조건만 쓰므로 문서 아이디 순으로 나누어 읽는다 (복합 색인이 필요 없음)
+        Query query = getLegacyMessageQuery(chatId).limit(MIGRATION_BATCH_SIZE);
+        if (last != null) {
+            query = query.startAfter(last);
+        }
+        query.get()
+                .addOnSuccessListener(snapshots -> {
+                    List<DocumentSnapshot> documents = snapshots.getDocuments();
+                    WriteBatch batch = chatCollection.getFirestore().batch();
+                    for (DocumentSnapshot document : documents) {
+                        Map<String, Object> data = document.getData();
+                        if (data != null) {
+                            // 복사한 메세지도 다른 기기의 변경 구독에 전달되도록 서버 시각을 쓴다
+                            data.put("updated", FieldValue.serverTimestamp());
+                            batch.set(getMessageCollection(chatId).document(document.getId()), data);
+                        }
+                    }
+                    boolean isLastPage = documents.size() < MIGRATION_BATCH_SIZE;
+                    if (isLastPage) {
+                        batch.update(chatCollection.document(chatId), "messagesMigrated", true);
+                    }
+                    batch.commit()
+                            .addOnSuccessListener(unused -> {
+                                if (!isLastPage) {
+                                    copyLegacyMessages(chatId, documents.get(documents.size() - 1));
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                e.printStackTrace();
+                                migratingChatIds.remove(chatId);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    e.printStackTrace();
+                    migratingChatIds.remove(chatId);
+                });
+    }
 
+    public void recopyMissingLegacyMessages(String chatId, List<DocumentSnapshot> documents) {
 
+        // 복사가 끝난 뒤(또는 복사하는 동안) 전역 컬렉션에 새로 쓰인 메세지 중 하위 컬렉션에 없는 것만 다시 복사한다
+        // 서버 시각을 새로 쓰므로 다른 기기의 변경 구독에도 전달된다 (이미 있는 메세지는 다시 쓰지 않음)
+        Map<String, DocumentSnapshot> byId = new LinkedHashMap<>();
+        for (DocumentSnapshot document : documents) {
+            byId.put(document.getId(), document);
+        }
+        for (List<String> chunk : FirestoreUtils.chunk(byId.keySet())) {
+            getMessageCollection(chatId).whereIn(FieldPath.documentId(), chunk).get()
+                    .addOnSuccessListener(snapshots -> {
+                        Set<String> existing = new HashSet<>();
+                        for (DocumentSnapshot document : snapshots.getDocuments()) {
+                            existing.add(document.getId());
+                        }
+                        WriteBatch batch = chatCollection.getFirestore().batch();
+                        int count = 0;
+                        for (String id : chunk) {
+                            Map<String, Object> data = existing.contains(id) ? null : byId.get(id).getData();
+                            if (data != null) {
+                                data.put("updated", FieldValue.serverTimestamp());
+                                batch.set(getMessageCollection(chatId).document(id), data);
+                                count++;
+                            }
+                        }
+                        if (count > 0) {
+                            batch.commit().addOnFailureListener(Throwable::printStackTrace);
+                        }
+                    })
+                    .addOnFailureListener(Throwable::printStackTrace);
+        }
+    }
 
+    private void readArchives(String chatId, long cursorCreated, String cursorId, int limit, boolean isDescending,
+                              DocumentSnapshot lastArchive, List<Message> collected,
+                              OnSuccessListener<List<Message>> onSuccessListener,
+                              OnFailureListener onFailureListener) {
+
+        // (cursorCreated, cursorId) 에 이어지는 보관 문서를 하나씩 읽어 collected 를 limit 개까지 채운다 (isDescending 순으로 정렬)
+        // 보관 문서의 메세지는 모두 기기에 저장하므로 같은 문서 범위의 다음 페이지는 서버를 조회하지 않는다
+        // 경계 시각이 커서와 같은 보관 문서도 읽고, 다음 문서는 앞서 읽은 문서 다음부터 찾는다 (같은 문서를 다시 읽지 않음)
+        Query query = isDescending
+                ? getArchiveCollection(chatId).whereLessThanOrEqualTo("fromMillis", cursorCreated)
+                        .orderBy("fromMillis", Query.Direction.DESCENDING)
+                : getArchiveCollection(chatId).whereGreaterThanOrEqualTo("toMillis", cursorCreated)
+                        .orderBy("toMillis", Query.Direction.ASCENDING);
+        if (lastArchive != null) {
+            query = query.startAfter(lastArchive);
+        }
+        query.limit(1).get()
+                .addOnSuccessListener(snapshots -> {
+                    if (snapshots.isEmpty()) {
+                        onSuccessListener.onSuccess(collected);
+                        return;
+                    }
+                    DocumentSnapshot document = snapshots.getDocuments().get(0);
+                    MessageArchive archive = document.toObject(MessageArchive.class);
+                    if (archive == null || archive.getMessages() == null) {
+                        onSuccessListener.onSuccess(collected);
+                        return;
+                    }
+                    List<Message> archived = new ArrayList<>(archive.getMessages());
+                    executor.execute(() -> messageDao.upsert(archived));
+
+                    archived.sort(isDescending ? Message.ORDER.reversed() : Message.ORDER);
+                    for (Message message : archived) {
+                        if (collected.size() >= limit) {
+                            break;
+                        }
+                        boolean isInRange = isDescending
+                                ? Message.compare(message, cursorCreated, cursorId) < 0
+                                : Message.compare(message, cursorCreated, cursorId) > 0;
+                        if (isInRange) {
+                            collected.add(message);
+                        }
+                    }
+                    if (collected.size() >= limit) {
+                        onSuccessListener.onSuccess(collected);
+                    } else {
+                        readArchives(chatId, cursorCreated, cursorId, limit, isDescending, document, collected,
+                                onSuccessListener, onFailureListener);
+                    }
+                })
+                .addOnFailureListener(onFailureListener);
+    }
 
+    private static List<Message> merge(List<Message> live, List<Message> archived, int limit, boolean isDescending) {
 
+        // 하위 컬렉션과 보관 문서에서 읽은 메세지를 합쳐 커서에 가까운 limit 개를 돌려준다 (같은 아이디는 하나만)
+        Map<String, Message> merged = new LinkedHashMap<>();
+        for (Message message : live) {
+            merged.put(message.getId(), message);
+        }
+        for (Message message : archived) {
+            merged.putIfAbsent(message.getId(), message);
+        }
+        List<Message> messages = new ArrayList<>(merged.values());
+        messages.sort(isDescending ? Message.ORDER.reversed() : Message.ORDER);
+        return messages.size() > limit ? new ArrayList<>(messages.subList(0, limit)) : messages;
+    }
 
+    private static Query startAfter(Query query, Query.Direction direction, long created, String id) {
 
+        // (created, 문서 아이디) 순으로 정렬하여 커서 다음부터 읽는다 (같은 밀리초의 메세지를 건너뛰지 않음)
+        // 아이디가 비어 있으면 작성 시각으로만 자른다 (빈 문자열은 문서 아이디 커서로 쓸 수 없음)
+        Query ordered = query.orderBy("created", direction).orderBy(FieldPath.documentId(), direction);
+        if (!id.isEmpty()) {
+            return ordered.startAfter(created, id);
+        }
+        return direction == Query.Direction.DESCENDING ? ordered.startAfter(created) : ordered.startAt(created);
+    }
 
+    private void queryMessages(String chatId, boolean isMigrated, Function<Query, Query> range,
+                               int limit, boolean isDescending,
+                               OnSuccessListener<List<Message>> onSuccessListener,
+                               OnFailureListener onFailureListener) {
 
+        // 하위 컬렉션을 읽고, 옮기지 않은 채팅방이면 기존 컬렉션도 함께 읽어 합친다 (같은 아이디는 하나만)
+        List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+        tasks.add(range.apply(getMessageCollection(chatId)).get());
+        if (!isMigrated) {
+            tasks.add(range.apply(getLegacyMessageQuery(chatId)).get());
+        }
+        Tasks.whenAllSuccess(tasks)
+                .addOnSuccessListener(results -> {
+                    Map<String, Message> merged = new LinkedHashMap<>();
+                    for (Object result : results) {
+                        for (Message message : ((QuerySnapshot) result).toObjects(Message.class)) {
+                            if (!merged.containsKey(message.getId())) {
+                                merged.put(message.getId(), message);
+                            }
+                        }
+                    }
+                    List<Message> messages = new ArrayList<>(merged.values());
+                    messages.sort(isDescending ? Message.ORDER.reversed() : Message.ORDER);
+                    onSuccessListener.onSuccess(messages.size() > limit ? new ArrayList<>(messages.subList(0, limit)) : messages);
+                })
+                .addOnFailureListener(onFailureListener);
+    }
 
+}
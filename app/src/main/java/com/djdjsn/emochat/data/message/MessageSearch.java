@@ -0,0 +1,173 @@
+package com.djdjsn.emochat.data.message;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+public class MessageSearch {
+    // 기기에 저장된 메세지의 전문 검색(FTS)을 위한 토큰 생성과 결과 정렬
+    // 한글은 띄어쓰기 단위로 자르면 조사가 붙어 검색되지 않으므로 두 글자씩(bigram) 잘라서 색인한다
+    //   "친구에게" -> "친구 구에 에게", "안녕" -> "안녕"
+
+    public static final int MAX_CANDIDATES = 500;       // 정렬할 후보 메세지의 최대 수
+    public static final double PHRASE_BOOST = 10.0;     // 검색어가 그대로 포함된 메세지에 더하는 점수
+
+    private static final double K1 = 1.2;               // BM25 파라미터
+    private static final double B = 0.75;
+
+    public static String tokenize(String text) {
+
+        // 색인할 토큰을 공백으로 구분하여 만든다
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String term : termsOf(text, false)) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(term);
+        }
+        return builder.toString();
+    }
+
+    public static String matchQueryOf(String query) {
+
+        // 검색어를 FTS MATCH 식으로 바꾼다 (모든 토큰을 포함하는 메세지, 검색할 토큰이 없으면 null)
+        // 입력 중인 마지막 영문/숫자 단어와 한 글자 한글은 접두어로 검색한다
+        if (query == null) {
+            return null;
+        }
+        List<String> terms = termsOf(query, true);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return String.join(" ", terms);
+    }
+
+    public static List<Message> rank(List<MessageMatch> matches, String query) {
+
+        // BM25 점수에 검색어가 그대로 포함된 경우의 가산점을 더하여 정렬한다 (같은 점수는 최근 순)
+        String phrase = normalize(query);
+        List<Scored> scored = new ArrayList<>();
+        for (MessageMatch match : matches) {
+            double score = bm25(match.getMatchInfo());
+            if (!phrase.isEmpty() && normalize(match.getMessage().getContent()).contains(phrase)) {
+                score += PHRASE_BOOST;
+            }
+            scored.add(new Scored(match.getMessage(), score));
+        }
+        scored.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed()
+                .thenComparing((Scored s) -> s.message.getCreated(), Comparator.reverseOrder()));
+
+        List<Message> ranked = new ArrayList<>();
+        for (Scored s : scored) {
+            ranked.add(s.message);
+        }
+        return ranked;
+    }
+
+    static double bm25(byte[] matchInfo) {
+
+        // matchinfo(fts, 'pcnalx') 의 결과로 BM25 점수를 계산한다
+        // [p, c, n, a(c개), l(c개), x(3 * p * c개)]
+        // 헤더(p, c, n)가 없거나 나머지 값이 모자라면 점수를 매기지 않는다
+        if (matchInfo == null || matchInfo.length < 12) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+        int rowCount = buffer.getInt(8);
+        // 개수를 먼저 배열 길이 이하로 제한하여 필요한 길이를 계산할 때 넘치지 않도록 한다
+        if (phraseCount < 0 || columnCount < 0 || phraseCount > matchInfo.length || columnCount > matchInfo.length
+                || matchInfo.length < 4L * (3 + 2L * columnCount + 3L * phraseCount * columnCount)) {
+            return 0;
+        }
+
+        double score = 0;
+        for (int column = 0; column < columnCount; column++) {
+            double averageLength = Math.max(1, buffer.getInt(4 * (3 + column)));
+            double length = buffer.getInt(4 * (3 + columnCount + column));
+            for (int phrase = 0; phrase < phraseCount; phrase++) {
+                int x = 3 + 2 * columnCount + 3 * (phrase * columnCount + column);
+                double hits = buffer.getInt(4 * x);
+                double documents = buffer.getInt(4 * (x + 2));
+                if (hits == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (rowCount - documents + 0.5) / (documents + 0.5));
+                score += idf * hits * (K1 + 1) / (hits + K1 * (1 - B + B * length / averageLength));
+            }
+        }
+        return score;
+    }
+
+    private static List<String> termsOf(String text, boolean isQuery) {
+
+        // 한글 구간과 그 외 글자/숫자 구간으로 나누어 토큰을 만든다 (그 밖의 문자는 구분자)
+        List<String> runs = new ArrayList<>();
+        List<Boolean> hangulRuns = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        boolean isHangulRun = false;
+        for (int i = 0; i <= lower.length(); i++) {
+            char ch = i < lower.length() ? lower.charAt(i) : ' ';
+            boolean isHangul = isHangul(ch);
+            boolean isWord = isHangul || Character.isLetterOrDigit(ch);
+            if (start >= 0 && (!isWord || isHangul != isHangulRun)) {
+                runs.add(lower.substring(start, i));
+                hangulRuns.add(isHangulRun);
+                start = -1;
+            }
+            if (isWord && start < 0) {
+                start = i;
+                isHangulRun = isHangul;
+            }
+        }
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i < runs.size(); i++) {
+            addTerms(terms, runs.get(i), hangulRuns.get(i), isQuery, i == runs.size() - 1);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static void addTerms(Set<String> terms, String run, boolean isHangul, boolean isQuery, boolean isLast) {
+        // 영문/숫자는 입력 중일 수 있는 마지막 단어만 접두어로 검색한다
+        // 한 글자 한글은 색인에 두 글자 토큰으로만 들어 있으므로 위치와 무관하게 접두어로 검색한다
+        if (!isHangul) {
+            terms.add(isQuery && isLast ? run + "*" : run);
+        } else if (run.length() == 1) {
+            terms.add(isQuery ? run + "*" : run);
+        } else {
+            for (int i = 0; i + 2 <= run.length(); i++) {
+                terms.add(run.substring(i, i + 2));
+            }
+        }
+    }
+
+    private static boolean isHangul(char ch) {
+        return Character.UnicodeScript.of(ch) == Character.UnicodeScript.HANGUL;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+
+    private static class Scored {
+        final Message message;
+        final double score;
+
+        Scored(Message message, double score) {
+            this.message = message;
+            this.score = score;
+        }
+    }
+
+}
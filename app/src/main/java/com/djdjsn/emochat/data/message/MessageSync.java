@@ -0,0 +1,87 @@
+package com.djdjsn.emochat.data.message;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import com.google.firebase.Timestamp;
+
+@Entity(tableName = "message_sync")
+public class MessageSync {
+    // 채팅방별 메세지 동기화 상태 (기기에만 저장)
+    // syncedNanos: 마지막으로 받은 메세지 변경의 서버 시각(updated). 다시 열면 이 시각 이후에 쓰인 메세지만 받는다
+    // (coveredCreated, coveredId): 이 위치부터 최근까지의 메세지는 기기에 빠짐없이 있다 (coveredId 가 null 이면 없음)
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    @PrimaryKey
+    @NonNull
+    private String chatId = "";
+    private long syncedNanos;
+    private long coveredCreated;
+    private String coveredId;
+
+    public MessageSync() {
+    }
+
+    @Ignore
+    public MessageSync(@NonNull String chatId) {
+        this.chatId = chatId;
+    }
+
+    public static long nanosOf(Timestamp timestamp) {
+        return timestamp.getSeconds() * NANOS_PER_SECOND + timestamp.getNanoseconds();
+    }
+
+    public static Timestamp timestampOf(long nanos) {
+        return new Timestamp(nanos / NANOS_PER_SECOND, (int) (nanos % NANOS_PER_SECOND));
+    }
+
+    public boolean isCovered(long created, String id) {
+        // (created, id) 위치가 빠짐없는 범위 안에 있는지 여부
+        if (coveredId == null) {
+            return false;
+        }
+        int result = Long.compare(created, coveredCreated);
+        return result != 0 ? result > 0 : id.compareTo(coveredId) >= 0;
+    }
+
+    public boolean isFullyCovered() {
+        // 채팅방의 첫 메세지부터 모두 기기에 있는지 여부
+        return coveredId != null && coveredCreated == 0 && coveredId.isEmpty();
+    }
+
+    @NonNull
+    public String getChatId() {
+        return chatId;
+    }
+
+    public long getSyncedNanos() {
+        return syncedNanos;
+    }
+
+    public long getCoveredCreated() {
+        return coveredCreated;
+    }
+
+    public String getCoveredId() {
+        return coveredId;
+    }
+
+    public void setChatId(@NonNull String chatId) {
+        this.chatId = chatId;
+    }
+
+    public void setSyncedNanos(long syncedNanos) {
+        this.syncedNanos = syncedNanos;
+    }
+
+    public void setCoveredCreated(long coveredCreated) {
+        this.coveredCreated = coveredCreated;
+    }
+
+    public void setCoveredId(String coveredId) {
+        this.coveredId = coveredId;
+    }
+}
@@ -0,0 +1,49 @@
+package com.djdjsn.emochat.data.message;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+@Dao
+public interface MessageSyncDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(MessageSync sync);
+
+    @Query("DELETE FROM message_sync")
+    void deleteAll();
+
+    @Query("SELECT * FROM message_sync WHERE chatId = :chatId")
+    MessageSync find(String chatId);
+
+    @Transaction
+    default void advanceSynced(String chatId, long syncedNanos) {
+        // 받은 변경의 서버 시각은 앞으로만 옮긴다
+        MessageSync sync = find(chatId);
+        if (sync == null) {
+            sync = new MessageSync(chatId);
+        }
+        if (syncedNanos > sync.getSyncedNanos()) {
+            sync.setSyncedNanos(syncedNanos);
+            upsert(sync);
+        }
+    }
+
+    @Transaction
+    default void extendCovered(String chatId, long created, String id) {
+        // 빠짐없는 범위를 (created, id) 까지 넓힌다 (이미 그보다 넓으면 그대로)
+        // 새로 받은 범위가 기존 범위와 이어질 때만 호출한다
+        MessageSync sync = find(chatId);
+        if (sync == null) {
+            sync = new MessageSync(chatId);
+        }
+        if (!sync.isCovered(created, id)) {
+            sync.setCoveredCreated(created);
+            sync.setCoveredId(id);
+            upsert(sync);
+        }
+    }
+
+}
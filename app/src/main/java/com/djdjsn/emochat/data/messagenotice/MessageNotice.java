@@ -1,24 +1,48 @@
 package com.djdjsn.emochat.data.messagenotice;
 
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.ServerTimestamp;
+
 public class MessageNotice {
 
     private String messageId;
     private String chatId;
     private String senderUid;
+    private String senderNickname;      // 알림 표시를 위해 보낸 시점의 닉네임을 함께 저장한다
     private String receiverUid;
+    private String preview;             // 알림에 표시할 메세지 앞부분
     private long created;
+    @ServerTimestamp
+    private Timestamp delivered;        // 서버에 저장된 시각 (보낸 기기의 시계와 무관하게 수신 순서를 정한다)
 
     public MessageNotice() {
     }
 
-    public MessageNotice(String messageId, String chatId, String senderUid, String receiverUid) {
+    public static final int PREVIEW_LENGTH = 40;
+
+    public MessageNotice(String messageId, String chatId, String senderUid, String senderNickname,
+                         String receiverUid, String preview) {
         this.messageId = messageId;
         this.chatId = chatId;
         this.senderUid = senderUid;
+        this.senderNickname = senderNickname;
         this.receiverUid = receiverUid;
+        this.preview = preview;
         this.created = System.currentTimeMillis();
     }
 
+    public static String previewOf(String content, boolean hasEmoji) {
+        // 내용이 없는 이모티콘 메세지는 "(이모티콘)" 으로 표시한다
+        if (content == null || content.isEmpty()) {
+            return hasEmoji ? "(이모티콘)" : "";
+        }
+        // 이모지 등 서로게이트 쌍이 잘리지 않도록 코드 포인트 단위로 자른다
+        if (content.codePointCount(0, content.length()) <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, content.offsetByCodePoints(0, PREVIEW_LENGTH)) + "…";
+    }
+
     public String getMessageId() {
         return messageId;
     }
@@ -43,6 +67,14 @@ public class MessageNotice {
         this.senderUid = senderUid;
     }
 
+    public String getSenderNickname() {
+        return senderNickname;
+    }
+
+    public void setSenderNickname(String senderNickname) {
+        this.senderNickname = senderNickname;
+    }
+
     public String getReceiverUid() {
         return receiverUid;
     }
@@ -51,6 +83,14 @@ public class MessageNotice {
         this.receiverUid = receiverUid;
     }
 
+    public String getPreview() {
+        return preview;
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+
     public long getCreated() {
         return created;
     }
@@ -58,4 +98,12 @@ public class MessageNotice {
     public void setCreated(long created) {
         this.created = created;
     }
+
+    public Timestamp getDelivered() {
+        return delivered;
+    }
+
+    public void setDelivered(Timestamp delivered) {
+        this.delivered = delivered;
+    }
 }
@@ -2,15 +2,24 @@ package com.djdjsn.emochat.data.messagenotice;
 
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class MessageNoticeRepository {
 
+    public static final int GC_BATCH_LIMIT = 500;       // 배치 하나에 넣을 수 있는 최대 작업 수
+
     private final CollectionReference messageNoticeCollection;
 
     @Inject
@@ -18,42 +27,67 @@ public class MessageNoticeRepository {
         messageNoticeCollection = firestore.collection("message_notices");
     }
 
-    public void addNotice(MessageNotice messageNotice) {
-        messageNoticeCollection.document(messageNotice.getMessageId()).set(messageNotice);
+    public void addNotice(WriteBatch batch, MessageNotice messageNotice) {
+        // 메세지와 함께 커밋되도록 배치에 추가만 한다
+        batch.set(messageNoticeCollection.document(messageNotice.getMessageId()), messageNotice);
     }
 
-    public void getRecentNoticeOf(String uid,
-                                  OnSuccessListener<MessageNotice> onSuccessListener,
-                                  OnFailureListener onFailureListener) {
+    public ListenerRegistration listenNoticesAfter(String uid, Timestamp afterDelivered, String afterId,
+                                                   OnSuccessListener<MessageNotice> onAddedListener,
+                                                   OnFailureListener onFailureListener) {
 
-        messageNoticeCollection.whereEqualTo("receiverUid", uid)
-                .orderBy("created", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (!queryDocumentSnapshots.isEmpty()) {
-                        DocumentSnapshot snapshot = queryDocumentSnapshots.getDocuments().get(0);
-                        MessageNotice messageNotice = snapshot.toObject(MessageNotice.class);
-                        if (messageNotice != null) {
-                            onSuccessListener.onSuccess(messageNotice);
-                        } else {
-                            onFailureListener.onFailure(new Exception("cannot deserialize a message notice"));
-                        }
-                    } else {
-                        onSuccessListener.onSuccess(null);
+        // 수신자의 알림 중 커서 이후에 서버에 저장된 것만 구독하고 새로 추가된 알림만 전달한다
+        // 보낸 기기의 시계가 늦거나 같은 시각에 저장된 알림도 빠지지 않도록 (서버 저장 시각, 문서 아이디) 순으로 읽는다
+        // (receiverUid, delivered) 복합 색인이 필요하다 (firestore.indexes.json)
+        Query query = messageNoticeCollection.whereEqualTo("receiverUid", uid)
+                .orderBy("delivered", Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+        if (afterDelivered != null) {
+            query = query.startAfter(afterDelivered, afterId != null ? afterId : "");
+        }
+        return query.addSnapshotListener((value, error) -> {
+            if (error != null) {
+                onFailureListener.onFailure(error);
+                return;
+            }
+            if (value == null) {
+                return;
+            }
+            for (DocumentChange change : value.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.ADDED) {
+                    MessageNotice notice = change.getDocument().toObject(MessageNotice.class);
+                    if (notice.getDelivered() != null) {
+                        onAddedListener.onSuccess(notice);
                     }
-                })
-                .addOnFailureListener(onFailureListener);
+                }
+            }
+        });
     }
 
-    public void deleteNoticesOf(String uid) {
+    public void deleteNoticesBefore(String uid, Timestamp beforeDelivered,
+                                    OnSuccessListener<Integer> onSuccessListener,
+                                    OnFailureListener onFailureListener) {
 
+        // 이미 처리한 알림을 최대 GC_BATCH_LIMIT 개씩 하나의 배치로 삭제하고 삭제한 수를 전달한다
+        // 커서와 같은 시각에 저장된 알림은 아직 처리하지 않은 것이 있을 수 있으므로 다음에 삭제한다
         messageNoticeCollection.whereEqualTo("receiverUid", uid)
+                .whereLessThan("delivered", beforeDelivered)
+                .limit(GC_BATCH_LIMIT)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
+                    if (queryDocumentSnapshots.isEmpty()) {
+                        onSuccessListener.onSuccess(0);
+                        return;
+                    }
+                    WriteBatch batch = messageNoticeCollection.getFirestore().batch();
                     for (DocumentSnapshot snapshot : queryDocumentSnapshots) {
-                        messageNoticeCollection.document(snapshot.getId()).delete();
+                        batch.delete(snapshot.getReference());
                     }
-                });
+                    batch.commit()
+                            .addOnSuccessListener(unused -> onSuccessListener.onSuccess(queryDocumentSnapshots.size()))
+                            .addOnFailureListener(onFailureListener);
+                })
+                .addOnFailureListener(onFailureListener);
     }
 
 }
@@ -0,0 +1,206 @@
+package com.djdjsn.emochat.data.outbox;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.djdjsn.emochat.data.message.Message;
+import com.djdjsn.emochat.data.message.MessageDao;
+import com.djdjsn.emochat.data.message.MessageRepository;
+import com.djdjsn.emochat.services.OutboxWorker;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class MessageOutbox {
+    // 보낼 메세지를 기기에 먼저 저장한 뒤 서버에 반영하는 클래스
+    // 전송에 실패했거나 앱이 종료되어 남은 메세지는 네트워크가 연결되었을 때 워커가 채팅방별로 묶어서 다시 보낸다
+    // 한 채팅방의 배치는 항상 이 클래스의 스레드에서 작성 순서대로 커밋을 요청한다
+    // (Firestore 는 한 클라이언트의 쓰기를 요청한 순서대로 반영한다)
+
+    public static final String WORK_NAME = "message_outbox";
+    public static final int MAX_BATCH_MESSAGES = 150;          // 한 배치에 넣을 메세지 수 (메세지당 문서 3개, 배치 최대 500개)
+    public static final int MAX_ATTEMPTS = 8;                  // 이 횟수만큼 실패한 메세지는 실패 상태로 남기고 사용자가 다시 보낸다
+    public static final long DRAIN_DELAY_SECONDS = 30;         // 전송 후 워커를 실행하기까지의 지연
+    public static final long BACKOFF_SECONDS = 10;             // 워커 재시도 간격의 시작값 (지수적으로 증가)
+
+    private final Application application;
+    private final FirebaseFirestore firestore;
+    private final MessageRepository messageRepository;
+    private final OutgoingMessageDao outgoingMessageDao;
+    private final MessageDao messageDao;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Set<String> inFlightIds = new HashSet<>();    // 전송 중인 메세지 (중복 전송 방지)
+
+    @Inject
+    public MessageOutbox(Application application,
+                         FirebaseFirestore firestore,
+                         MessageRepository messageRepository,
+                         OutgoingMessageDao outgoingMessageDao,
+                         MessageDao messageDao) {
+        this.application = application;
+        this.firestore = firestore;
+        this.messageRepository = messageRepository;
+        this.outgoingMessageDao = outgoingMessageDao;
+        this.messageDao = messageDao;
+    }
+
+    public void send(Message message, String senderNickname, String receiverUid,
+                     OnFailureListener onFailureListener) {
+
+        // 기기에 저장한 뒤 바로 전송한다. 앱이 종료되어도 남은 메세지는 워커가 보낸다
+        // 같은 채팅방에 아직 보내지 못한 이전 메세지가 있으면 먼저 보낸다
+        // 메세지 사본에도 pending 상태로 저장하여 서버에 반영되기 전(오프라인 포함)에도 화면에 보이게 한다
+        // (SyncEngine 은 서버 시각으로 변경을 받으므로 반영 전의 쓰기는 전달하지 않는다. 반영되면 같은 아이디로 덮어쓴다)
+        OutgoingMessage outgoing = OutgoingMessage.of(message, senderNickname, receiverUid);
+        Message pending = outgoing.toMessage();
+        pending.setPending(true);
+        executor.execute(() -> {
+            outgoingMessageDao.insert(outgoing);
+            messageDao.upsert(Collections.singletonList(pending));
+            scheduleDrain();
+            commitInOrder(outgoingMessageDao.getSendableIn(outgoing.getChatId(), MAX_ATTEMPTS))
+                    .addOnFailureListener(executor, e -> handler.post(() -> onFailureListener.onFailure(e)));
+        });
+    }
+
+    public LiveData<List<OutgoingMessage>> getFailedMessagesIn(String chatId) {
+        // 재시도 횟수를 모두 사용하여 자동으로 보내지 않는 메세지
+        return outgoingMessageDao.getFailedIn(chatId, MAX_ATTEMPTS);
+    }
+
+    public void retryFailed(String chatId, OnFailureListener onFailureListener) {
+
+        // 실패 상태인 메세지의 재시도 횟수를 초기화하고 채팅방의 남은 메세지와 함께 작성 순서대로 다시 보낸다
+        executor.execute(() -> {
+            outgoingMessageDao.resetFailedIn(chatId, MAX_ATTEMPTS);
+            scheduleDrain();
+            commitInOrder(outgoingMessageDao.getSendableIn(chatId, MAX_ATTEMPTS))
+                    .addOnFailureListener(executor, e -> handler.post(() -> onFailureListener.onFailure(e)));
+        });
+    }
+
+    public Task<Void> drain() {
+
+        // 남아 있는 메세지를 채팅방별로 작성 순서대로 묶어서 보낸다
+        return Tasks.call(executor, () -> {
+            Map<String, List<OutgoingMessage>> byChat = new LinkedHashMap<>();
+            for (OutgoingMessage outgoing : outgoingMessageDao.getSendable(MAX_ATTEMPTS)) {
+                List<OutgoingMessage> list = byChat.get(outgoing.getChatId());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    byChat.put(outgoing.getChatId(), list);
+                }
+                list.add(outgoing);
+            }
+            return byChat;
+        }).continueWithTask(executor, task -> {
+            List<Task<Void>> chatTasks = new ArrayList<>();
+            for (List<OutgoingMessage> messages : task.getResult().values()) {
+                chatTasks.add(commitInOrder(messages));
+            }
+            return Tasks.whenAll(chatTasks);
+        });
+    }
+
+    public int getPendingCount() {
+        // 자동으로 다시 보낼 메세지 수 (백그라운드 스레드에서 호출, 실패 상태인 메세지 제외)
+        return outgoingMessageDao.countSendable(MAX_ATTEMPTS);
+    }
+
+    private Task<Void> commitInOrder(List<OutgoingMessage> messages) {
+
+        // 한 채팅방의 메세지를 작성 순서대로 배치에 나누어 곧바로 커밋을 요청한다 (이 클래스의 스레드에서 호출)
+        // 앞의 배치가 반영되기를 기다리지 않아도 요청한 순서대로 반영되며, 오프라인일 때도 바로 화면에 표시된다
+        // 이미 전송 중인 메세지는 앞서 요청되었으므로 건너뛴다
+        List<OutgoingMessage> sendable = new ArrayList<>();
+        for (OutgoingMessage outgoing : messages) {
+            if (!isInFlight(outgoing.getId())) {
+                sendable.add(outgoing);
+            }
+        }
+        List<Task<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < sendable.size(); i += MAX_BATCH_MESSAGES) {
+            tasks.add(commit(sendable.subList(i, Math.min(i + MAX_BATCH_MESSAGES, sendable.size()))));
+        }
+        return Tasks.whenAll(tasks);
+    }
+
+    private Task<Void> commit(List<OutgoingMessage> messages) {
+
+        List<String> ids = new ArrayList<>();
+        WriteBatch batch = firestore.batch();
+        for (OutgoingMessage outgoing : messages) {
+            ids.add(outgoing.getId());
+            messageRepository.addMessage(batch, outgoing.toMessage(),
+                    outgoing.getSenderNickname(), outgoing.getReceiverUid());
+        }
+        setInFlight(ids, true);
+
+        return batch.commit().continueWithTask(executor, task -> {
+            setInFlight(ids, false);
+            if (task.isSuccessful()) {
+                outgoingMessageDao.delete(ids);
+            } else {
+                outgoingMessageDao.increaseAttempts(ids);
+            }
+            return task;
+        });
+    }
+
+    private void scheduleDrain() {
+
+        // 이미 예약되었거나 실행 중인 워커가 있으면 그대로 둔다 (실행 중인 워커를 취소하거나 재시도 간격을 초기화하지 않음)
+        // 실행 중인 워커가 놓친 메세지는 남은 메세지로 확인되어 워커가 다시 실행된다
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(DRAIN_DELAY_SECONDS, TimeUnit.SECONDS)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(application)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    private synchronized boolean isInFlight(String id) {
+        return inFlightIds.contains(id);
+    }
+
+    private synchronized void setInFlight(List<String> ids, boolean isInFlight) {
+        if (isInFlight) {
+            inFlightIds.addAll(ids);
+        } else {
+            ids.forEach(inFlightIds::remove);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.djdjsn.emochat.data.outbox;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.djdjsn.emochat.data.message.Message;
+
+@Entity(tableName = "outbox", indices = {@Index(value = {"chatId", "created"})})
+public class OutgoingMessage {
+    // 서버에 반영되기 전까지 기기에 보관하는 보낼 메세지
+
+    @PrimaryKey
+    @NonNull
+    private final String id;
+    private final String chatId;
+    private final String uid;
+    private final String senderNickname;
+    private final String receiverUid;
+    private final String emojiUrl;
+    private final String content;
+    private final long created;
+    private final int attempts;         // 전송을 시도했다가 실패한 횟수
+
+    public OutgoingMessage(@NonNull String id, String chatId, String uid, String senderNickname,
+                           String receiverUid, String emojiUrl, String content, long created, int attempts) {
+        this.id = id;
+        this.chatId = chatId;
+        this.uid = uid;
+        this.senderNickname = senderNickname;
+        this.receiverUid = receiverUid;
+        this.emojiUrl = emojiUrl;
+        this.content = content;
+        this.created = created;
+        this.attempts = attempts;
+    }
+
+    public static OutgoingMessage of(Message message, String senderNickname, String receiverUid) {
+        return new OutgoingMessage(message.getId(), message.getChatId(), message.getUid(), senderNickname,
+                receiverUid, message.getEmojiUrl(), message.getContent(), message.getCreated(), 0);
+    }
+
+    public Message toMessage() {
+        Message message = new Message();
+        message.setId(id);
+        message.setChatId(chatId);
+        message.setUid(uid);
+        message.setEmojiUrl(emojiUrl);
+        message.setContent(content);
+        message.setCreated(created);
+        return message;
+    }
+
+    @NonNull
+    public String getId() {
+        return id;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getSenderNickname() {
+        return senderNickname;
+    }
+
+    public String getReceiverUid() {
+        return receiverUid;
+    }
+
+    public String getEmojiUrl() {
+        return emojiUrl;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,44 @@
+package com.djdjsn.emochat.data.outbox;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface OutgoingMessageDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(OutgoingMessage message);
+
+    // 자동으로 다시 보낼 메세지를 채팅방별로 작성 순서대로 정렬하여 불러온다 (실패 상태인 메세지 제외)
+    @Query("SELECT * FROM outbox WHERE attempts < :maxAttempts ORDER BY chatId, created, id")
+    List<OutgoingMessage> getSendable(int maxAttempts);
+
+    @Query("SELECT * FROM outbox WHERE chatId = :chatId AND attempts < :maxAttempts ORDER BY created, id")
+    List<OutgoingMessage> getSendableIn(String chatId, int maxAttempts);
+
+    @Query("SELECT COUNT(*) FROM outbox WHERE attempts < :maxAttempts")
+    int countSendable(int maxAttempts);
+
+    // 재시도 횟수를 모두 사용하여 실패 상태인 메세지
+    @Query("SELECT * FROM outbox WHERE chatId = :chatId AND attempts >= :maxAttempts ORDER BY created, id")
+    LiveData<List<OutgoingMessage>> getFailedIn(String chatId, int maxAttempts);
+
+    // 가장 최근에 작성한 메세지 (없으면 null)
+    @Query("SELECT * FROM outbox ORDER BY created DESC, id DESC LIMIT 1")
+    OutgoingMessage getLatest();
+
+    @Query("DELETE FROM outbox WHERE id IN (:ids)")
+    void delete(List<String> ids);
+
+    @Query("UPDATE outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+    void increaseAttempts(List<String> ids);
+
+    @Query("UPDATE outbox SET attempts = 0 WHERE chatId = :chatId AND attempts >= :maxAttempts")
+    int resetFailedIn(String chatId, int maxAttempts);
+
+}
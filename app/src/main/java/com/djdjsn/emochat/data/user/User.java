@@ -1,11 +1,19 @@
 package com.djdjsn.emochat.data.user;
 
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
 import java.io.Serializable;
 import java.util.Objects;
 
+@Entity(tableName = "users")
 public class User implements Serializable {
 
-    private String uid;
+    @PrimaryKey
+    @NonNull
+    private String uid = "";
     private String id;
     private String nickname;
     private String phone;
@@ -14,7 +22,8 @@ public class User implements Serializable {
     public User() {
     }
 
-    public User(String uid, String id, String nickname, String phone) {
+    @Ignore
+    public User(@NonNull String uid, String id, String nickname, String phone) {
         this.uid = uid;
         this.id = id;
         this.nickname = nickname;
@@ -22,6 +31,7 @@ public class User implements Serializable {
         this.created = System.currentTimeMillis();
     }
 
+    @NonNull
     public String getUid() {
         return uid;
     }
@@ -42,7 +52,7 @@ public class User implements Serializable {
         return created;
     }
 
-    public void setUid(String uid) {
+    public void setUid(@NonNull String uid) {
         this.uid = uid;
     }
 
@@ -0,0 +1,34 @@
+package com.djdjsn.emochat.data.user;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface UserDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<User> users);
+
+    @Query("DELETE FROM users WHERE uid IN (:uids)")
+    void delete(List<String> uids);
+
+    @Query("DELETE FROM users")
+    void deleteAll();
+
+    @Query("SELECT * FROM users WHERE uid = :uid")
+    LiveData<User> getUser(String uid);
+
+    @Query("SELECT * FROM users WHERE uid IN (:uids)")
+    LiveData<List<User>> getUsers(List<String> uids);
+
+    // 친구 관계 테이블과 합쳐서 친구 회원정보를 닉네임 순으로 불러온다
+    @Query("SELECT users.* FROM users INNER JOIN user_relations ON users.uid = user_relations.other " +
+            "WHERE user_relations.uid = :uid ORDER BY users.nickname")
+    LiveData<List<User>> getFriendsOf(String uid);
+
+}
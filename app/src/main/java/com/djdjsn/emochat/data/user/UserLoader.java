@@ -0,0 +1,110 @@
+package com.djdjsn.emochat.data.user;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.djdjsn.emochat.utils.firestore.FirestoreUtils;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class UserLoader {
+    // 같은 프레임(메인 루퍼의 한 틱) 안에 요청된 회원정보를 모아 whereIn 쿼리로 한 번에 불러오는 클래스
+
+    private static class Request {
+        final OnSuccessListener<User> onSuccessListener;
+        final OnFailureListener onFailureListener;
+
+        Request(OnSuccessListener<User> onSuccessListener, OnFailureListener onFailureListener) {
+            this.onSuccessListener = onSuccessListener;
+            this.onFailureListener = onFailureListener;
+        }
+    }
+
+    private final CollectionReference userCollection;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Set<String> pendingUids = new LinkedHashSet<>();            // 다음 틱에 조회할 uid
+    private final Map<String, List<Request>> requests = new HashMap<>();     // 조회 대기 또는 진행 중인 요청
+    private boolean isDispatchScheduled;
+
+    @Inject
+    public UserLoader(FirebaseFirestore firestore) {
+        userCollection = firestore.collection("users");
+    }
+
+    public synchronized void load(String uid,
+                                  OnSuccessListener<User> onSuccessListener,
+                                  OnFailureListener onFailureListener) {
+
+        List<Request> waiting = requests.get(uid);
+        if (waiting != null) {
+            // 이미 조회 중인 uid 라면 진행 중인 요청의 결과를 함께 받는다
+            waiting.add(new Request(onSuccessListener, onFailureListener));
+            return;
+        }
+
+        waiting = new ArrayList<>();
+        waiting.add(new Request(onSuccessListener, onFailureListener));
+        requests.put(uid, waiting);
+        pendingUids.add(uid);
+
+        if (!isDispatchScheduled) {
+            isDispatchScheduled = true;
+            handler.post(this::dispatch);
+        }
+    }
+
+    private synchronized void dispatch() {
+
+        isDispatchScheduled = false;
+        List<List<String>> chunks = FirestoreUtils.chunk(pendingUids);
+        pendingUids.clear();
+
+        for (List<String> chunk : chunks) {
+            userCollection.whereIn(FieldPath.documentId(), chunk)
+                    .get()
+                    .addOnSuccessListener(queryDocumentSnapshots -> {
+                        Map<String, User> users = new HashMap<>();
+                        for (DocumentSnapshot snapshot : queryDocumentSnapshots) {
+                            User user = snapshot.toObject(User.class);
+                            if (user != null) {
+                                users.put(snapshot.getId(), user);
+                            }
+                        }
+                        for (String uid : chunk) {
+                            for (Request request : complete(uid)) {
+                                request.onSuccessListener.onSuccess(users.get(uid));
+                            }
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        for (String uid : chunk) {
+                            for (Request request : complete(uid)) {
+                                request.onFailureListener.onFailure(e);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private synchronized List<Request> complete(String uid) {
+        List<Request> waiting = requests.remove(uid);
+        return waiting != null ? waiting : new ArrayList<>();
+    }
+
+}
@@ -2,27 +2,34 @@ package com.djdjsn.emochat.data.user;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
+import com.djdjsn.emochat.utils.firestore.FirestoreQueryLiveData;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.firestore.CollectionReference;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class UserRepository {
 
     private final CollectionReference userCollection;
+    private final UserDao userDao;
 
     @Inject
-    public UserRepository(FirebaseFirestore firestore) {
+    public UserRepository(FirebaseFirestore firestore, UserDao userDao) {
 
         userCollection = firestore.collection("users");
+        this.userDao = userDao;
     }
 
     // DB에 회원정보를 추가하는 메소드
@@ -37,37 +44,6 @@ public class UserRepository {
 
     // DB에서 회원정보를 검색하는 메소드
 
-    public LiveData<User> getUser(String uid) {
-
-        MutableLiveData<User> data = new MutableLiveData<>();
-        if (uid == null) {
-            data.setValue(null);
-            return data;
-        }
-
-        userCollection.document(uid)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    if (value == null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    data.setValue(value.toObject(User.class));
-                });
-
-        return data;
-    }
-
-    public void getUser(String uid, OnSuccessListener<User> onSuccessListener, OnFailureListener onFailureListener) {
-
-        userCollection.document(uid).get()
-                .addOnSuccessListener(documentSnapshot -> onSuccessListener.onSuccess(documentSnapshot.toObject(User.class)))
-                .addOnFailureListener(onFailureListener);
-    }
-
     public LiveData<List<User>> getUserByPhone(String phone) {
 
         MutableLiveData<List<User>> data = new MutableLiveData<>();
@@ -76,20 +52,7 @@ public class UserRepository {
             return data;
         }
 
-        userCollection.whereEqualTo("phone", phone)
-                .addSnapshotListener((values, error) -> {
-                    if (error != null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    if (values == null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    data.setValue(values.toObjects(User.class));
-                });
-
-        return data;
+        return new FirestoreQueryLiveData<>(userCollection.whereEqualTo("phone", phone), User.class);
     }
 
     public void getUserByPhone(String phone,
@@ -108,47 +71,45 @@ public class UserRepository {
     }
 
 
-    // DB 에서 다수의 회원정보를 검색하는 메소드
+    // 기기에 동기화된 회원정보를 검색하는 메소드 (SyncEngine 이 갱신한다)
+    public LiveData<User> getLocalUser(String uid) {
+
+        MutableLiveData<User> data = new MutableLiveData<>();
+        if (uid == null) {
+            data.setValue(null);
+            return data;
+        }
+
+        return userDao.getUser(uid);
+    }
 
-    public LiveData<Map<String, User>> getUserMap(List<String> uids) {
+    public LiveData<Map<String, User>> getLocalUserMap(List<String> uids) {
 
         MutableLiveData<Map<String, User>> data = new MutableLiveData<>();
+        if (uids == null || uids.isEmpty()) {
+            data.setValue(new HashMap<>());
+            return data;
+        }
 
-        userCollection.addSnapshotListener((value, error) -> {
-            if (error != null) {
-                error.printStackTrace();
-            }
-            if (error != null || value == null) {
-                data.setValue(null);
-                return;
-            }
+        return Transformations.map(userDao.getUsers(new ArrayList<>(new LinkedHashSet<>(uids))), users -> {
             Map<String, User> userMap = new HashMap<>();
-            for (DocumentSnapshot snapshot : value) {
-                if (snapshot == null) {
-                    continue;
-                }
-                User user = snapshot.toObject(User.class);
-                if (user == null) {
-                    continue;
-                }
-                if (uids == null) {
-                    userMap.put(user.getUid(), user);
-                } else if (uids.contains(user.getUid())) {
-                    userMap.put(user.getUid(), user);
-                }
+            for (User user : users) {
+                userMap.put(user.getUid(), user);
             }
-            data.setValue(userMap);
+            return userMap;
         });
-
-        return data;
     }
 
-}
-
-
-
-
-
+    public LiveData<List<User>> getLocalFriendsOf(String uid) {
 
+        MutableLiveData<List<User>> data = new MutableLiveData<>();
+        if (uid == null) {
+            data.setValue(null);
+            return data;
+        }
 
+        // 친구 관계와 회원정보의 로컬 사본을 합쳐서 불러온다 (닉네임 순)
+        return userDao.getFriendsOf(uid);
+    }
 
+}
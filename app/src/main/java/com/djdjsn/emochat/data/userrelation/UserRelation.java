@@ -1,23 +1,33 @@
 package com.djdjsn.emochat.data.userrelation;
 
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
 import java.util.Objects;
 
+@Entity(tableName = "user_relations", primaryKeys = {"uid", "other"})
 public class UserRelation {
 
-    private String uid;
-    private String other;
+    @NonNull
+    private String uid = "";
+    @NonNull
+    private String other = "";
 
+    @Ignore
     public UserRelation() {}
 
-    public UserRelation(String uid, String other) {
+    public UserRelation(@NonNull String uid, @NonNull String other) {
         this.uid = uid;
         this.other = other;
     }
 
+    @NonNull
     public String getUid() {
         return uid;
     }
 
+    @NonNull
     public String getOther() {
         return other;
     }
@@ -0,0 +1,23 @@
+package com.djdjsn.emochat.data.userrelation;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface UserRelationDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<UserRelation> relations);
+
+    @Delete
+    void delete(List<UserRelation> relations);
+
+    @Query("DELETE FROM user_relations")
+    void deleteAll();
+
+}
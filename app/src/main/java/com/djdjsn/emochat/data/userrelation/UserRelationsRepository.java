@@ -3,6 +3,7 @@ package com.djdjsn.emochat.data.userrelation;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.djdjsn.emochat.utils.firestore.SnapshotListenerRegistry;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.firestore.CollectionReference;
@@ -11,15 +12,19 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+@Singleton
 public class UserRelationsRepository {
 
     private final CollectionReference relationCollection;
+    private final SnapshotListenerRegistry listenerRegistry;
 
     @Inject
-    public UserRelationsRepository(FirebaseFirestore firestore) {
+    public UserRelationsRepository(FirebaseFirestore firestore, SnapshotListenerRegistry listenerRegistry) {
 
         relationCollection = firestore.collection("user_relations");
+        this.listenerRegistry = listenerRegistry;
     }
 
     public void hasRelationBetween(String uid, String other,
@@ -66,21 +71,7 @@ public class UserRelationsRepository {
             return data;
         }
 
-        relationCollection
-                .whereEqualTo("uid", uid)
-                .addSnapshotListener((values, error) -> {
-                    if (error != null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    if (values == null) {
-                        data.setValue(null);
-                        return;
-                    }
-                    data.setValue(values.toObjects(UserRelation.class));
-                });
-
-        return data;
+        return listenerRegistry.query(relationCollection.whereEqualTo("uid", uid), UserRelation.class);
     }
 
 }
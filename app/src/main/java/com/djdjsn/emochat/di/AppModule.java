@@ -2,7 +2,17 @@ package com.djdjsn.emochat.di;
 
 import android.app.Application;
 
+import androidx.room.Room;
+
 import com.djdjsn.emochat.data.PreferencesData;
+import com.djdjsn.emochat.data.chat.ChatDao;
+import com.djdjsn.emochat.data.chatannotation.ChatAnnotationDao;
+import com.djdjsn.emochat.data.local.EmoChatDatabase;
+import com.djdjsn.emochat.data.message.MessageDao;
+import com.djdjsn.emochat.data.message.MessageSyncDao;
+import com.djdjsn.emochat.data.outbox.OutgoingMessageDao;
+import com.djdjsn.emochat.data.user.UserDao;
+import com.djdjsn.emochat.data.userrelation.UserRelationDao;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.storage.FirebaseStorage;
@@ -20,16 +30,19 @@ public class AppModule {
     // Dagger Hilt 의존성 주입을 위한 모듈 클래스
     
     @Provides
+    @Singleton
     public FirebaseAuth provideFirebaseAuth() {
         return FirebaseAuth.getInstance();
     }
 
     @Provides
+    @Singleton
     public FirebaseFirestore provideFirebaseFirestore() {
         return FirebaseFirestore.getInstance();
     }
 
     @Provides
+    @Singleton
     public FirebaseStorage provideFirebaseStorage() {
         return FirebaseStorage.getInstance();
     }
@@ -40,6 +53,51 @@ public class AppModule {
         return new PreferencesData(application);
     }
 
+    @Provides
+    @Singleton
+    public EmoChatDatabase provideEmoChatDatabase(Application application) {
+        return Room.databaseBuilder(application, EmoChatDatabase.class, EmoChatDatabase.NAME)
+                .addMigrations(EmoChatDatabase.MIGRATION_1_2, EmoChatDatabase.MIGRATION_2_3,
+                        EmoChatDatabase.MIGRATION_3_4, EmoChatDatabase.MIGRATION_4_5,
+                        EmoChatDatabase.MIGRATION_5_6, EmoChatDatabase.MIGRATION_6_7)
+                .build();
+    }
+
+    @Provides
+    public OutgoingMessageDao provideOutgoingMessageDao(EmoChatDatabase database) {
+        return database.outgoingMessageDao();
+    }
+
+    @Provides
+    public ChatDao provideChatDao(EmoChatDatabase database) {
+        return database.chatDao();
+    }
+
+    @Provides
+    public MessageDao provideMessageDao(EmoChatDatabase database) {
+        return database.messageDao();
+    }
+
+    @Provides
+    public MessageSyncDao provideMessageSyncDao(EmoChatDatabase database) {
+        return database.messageSyncDao();
+    }
+
+    @Provides
+    public UserDao provideUserDao(EmoChatDatabase database) {
+        return database.userDao();
+    }
+
+    @Provides
+    public ChatAnnotationDao provideChatAnnotationDao(EmoChatDatabase database) {
+        return database.chatAnnotationDao();
+    }
+
+    @Provides
+    public UserRelationDao provideUserRelationDao(EmoChatDatabase database) {
+        return database.userRelationDao();
+    }
+
 }
 
 
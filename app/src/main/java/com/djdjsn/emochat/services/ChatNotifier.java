@@ -0,0 +1,205 @@
+package com.djdjsn.emochat.services;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Person;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.service.notification.StatusBarNotification;
+
+import com.djdjsn.emochat.EmoChatApplication;
+import com.djdjsn.emochat.R;
+import com.djdjsn.emochat.data.messagenotice.MessageNotice;
+import com.djdjsn.emochat.data.user.UserLoader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ChatNotifier {
+    // 짧은 시간 동안 도착한 알림을 모아서 채팅방별 MessagingStyle 노티피케이션으로 한 번에 갱신하는 클래스
+    // 보낸 사람의 닉네임은 알림에 저장된 값을 쓰고, 노티피케이션 갱신 빈도를 제한한다
+
+    public static final String GROUP_KEY_CHAT = "com.djdjsn.emochat.chat";
+    public static final int CHAT_NOTIFICATION_ID = 1;               // 채팅방 노티피케이션은 (채팅방 아이디 태그, 이 번호)로 구분한다
+    public static final long BUFFER_WINDOW_MILLIS = 1000;           // 알림을 모으는 시간
+    public static final long MIN_UPDATE_INTERVAL_MILLIS = 3000;     // 노티피케이션 갱신 사이의 최소 간격
+    public static final int MAX_MESSAGES_PER_CHAT = 8;              // 채팅방 노티피케이션에 표시할 최대 메세지 수
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final UserLoader userLoader;
+    private final PendingIntent contentIntent;
+    private final int summaryNotificationId;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flush = this::flush;
+    private final Map<String, List<MessageNotice>> pending = new LinkedHashMap<>();      // 채팅방별로 모은 알림
+    private final Map<String, LinkedList<MessageNotice>> shown = new HashMap<>();        // 채팅방별로 표시 중인 알림
+    private final Map<String, String> nicknames = new HashMap<>();                      // 보낸 사람의 uid 별 닉네임
+    private boolean isFlushScheduled;
+    private long lastFlushMillis;
+
+    public ChatNotifier(Context context,
+                        NotificationManager notificationManager,
+                        UserLoader userLoader,
+                        PendingIntent contentIntent,
+                        int summaryNotificationId) {
+        this.context = context;
+        this.notificationManager = notificationManager;
+        this.userLoader = userLoader;
+        this.contentIntent = contentIntent;
+        this.summaryNotificationId = summaryNotificationId;
+    }
+
+    public void add(MessageNotice messageNotice) {
+
+        List<MessageNotice> notices = pending.get(messageNotice.getChatId());
+        if (notices == null) {
+            notices = new ArrayList<>();
+            pending.put(messageNotice.getChatId(), notices);
+        }
+        notices.add(messageNotice);
+
+        // 모으는 시간이 지나고, 마지막 갱신으로부터 최소 간격이 지난 뒤에 한 번만 갱신한다
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            long now = SystemClock.uptimeMillis();
+            long at = Math.max(now + BUFFER_WINDOW_MILLIS, lastFlushMillis + MIN_UPDATE_INTERVAL_MILLIS);
+            handler.postAtTime(flush, at);
+        }
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(flush);
+        isFlushScheduled = false;
+        pending.clear();
+    }
+
+    private void flush() {
+
+        isFlushScheduled = false;
+        lastFlushMillis = SystemClock.uptimeMillis();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<MessageNotice>> notices = new LinkedHashMap<>(pending);
+        pending.clear();
+
+        // 알림에 닉네임이 저장되어 있으면 그대로 쓰고, 없는 보낸 사람만 한 번씩 묶어서 회원정보를 찾는다
+        Set<String> senderUids = new HashSet<>();
+        for (List<MessageNotice> list : notices.values()) {
+            for (MessageNotice notice : list) {
+                if (notice.getSenderNickname() != null) {
+                    nicknames.put(notice.getSenderUid(), notice.getSenderNickname());
+                } else if (!nicknames.containsKey(notice.getSenderUid())) {
+                    senderUids.add(notice.getSenderUid());
+                }
+            }
+        }
+        if (senderUids.isEmpty()) {
+            post(notices);
+            return;
+        }
+
+        int[] remaining = {senderUids.size()};
+        for (String uid : senderUids) {
+            userLoader.load(uid,
+                    user -> {
+                        if (user != null) {
+                            nicknames.put(uid, user.getNickname());
+                        }
+                        if (--remaining[0] == 0) {
+                            post(notices);
+                        }
+                    },
+                    e -> {
+                        e.printStackTrace();
+                        if (--remaining[0] == 0) {
+                            post(notices);
+                        }
+                    });
+        }
+    }
+
+    private void post(Map<String, List<MessageNotice>> notices) {
+
+        // 채팅방 아이디를 태그로 쓰므로 해시가 겹치는 다른 채팅방이나 요약/포그라운드 노티피케이션을 덮어쓰지 않는다
+        Set<String> activeChatIds = new HashSet<>();
+        for (StatusBarNotification notification : notificationManager.getActiveNotifications()) {
+            if (notification.getTag() != null && notification.getId() == CHAT_NOTIFICATION_ID) {
+                activeChatIds.add(notification.getTag());
+            }
+        }
+
+        for (Map.Entry<String, List<MessageNotice>> entry : notices.entrySet()) {
+            String chatId = entry.getKey();
+
+            // 사용자가 지운 노티피케이션이라면 이전 메세지는 다시 보여주지 않는다
+            LinkedList<MessageNotice> history = shown.get(chatId);
+            if (history == null || !activeChatIds.contains(chatId)) {
+                history = new LinkedList<>();
+                shown.put(chatId, history);
+            }
+            history.addAll(entry.getValue());
+            while (history.size() > MAX_MESSAGES_PER_CHAT) {
+                history.removeFirst();
+            }
+
+            notificationManager.notify(chatId, CHAT_NOTIFICATION_ID, createChatNotification(history));
+            activeChatIds.add(chatId);
+        }
+
+        notificationManager.notify(summaryNotificationId, createSummaryNotification());
+    }
+
+    private Notification createChatNotification(List<MessageNotice> history) {
+
+        Person self = new Person.Builder().setName("나").build();
+        Notification.MessagingStyle style = new Notification.MessagingStyle(self);
+
+        for (MessageNotice notice : history) {
+            String name = nicknames.get(notice.getSenderUid());
+            Person person = new Person.Builder()
+                    .setKey(notice.getSenderUid())
+                    .setName(name != null ? name : "알 수 없음")
+                    .build();
+            String text = notice.getPreview() != null ? notice.getPreview() : "메세지를 보내셨습니다";
+            style.addMessage(text, notice.getCreated(), person);
+        }
+
+        return new Notification.Builder(context, EmoChatApplication.CHANNEL_ID_CHAT)
+                .setContentIntent(contentIntent)
+                .setStyle(style)
+                .setSmallIcon(R.drawable.ic_chat_service)
+                .setVisibility(Notification.VISIBILITY_PUBLIC)
+                .setGroup(GROUP_KEY_CHAT)
+                // 표시 중인 노티피케이션에 메세지를 더할 때는 소리와 진동을 반복하지 않는다
+                .setOnlyAlertOnce(true)
+                .setAutoCancel(true)
+                .build();
+    }
+
+    private Notification createSummaryNotification() {
+
+        return new Notification.Builder(context, EmoChatApplication.CHANNEL_ID_CHAT)
+                .setContentIntent(contentIntent)
+                .setContentTitle("새 메세지")
+                .setSmallIcon(R.drawable.ic_chat_service)
+                .setGroup(GROUP_KEY_CHAT)
+                .setGroupSummary(true)
+                .setOnlyAlertOnce(true)
+                .setAutoCancel(true)
+                .build();
+    }
+
+}
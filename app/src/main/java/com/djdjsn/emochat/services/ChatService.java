@@ -4,49 +4,96 @@ import android.app.Notification;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 
 import com.djdjsn.emochat.EmoChatApplication;
 import com.djdjsn.emochat.R;
-import com.djdjsn.emochat.data.PreferencesData;
+import com.djdjsn.emochat.data.NoticeCursorData;
+import com.djdjsn.emochat.data.messagenotice.MessageNotice;
 import com.djdjsn.emochat.data.messagenotice.MessageNoticeRepository;
-import com.djdjsn.emochat.data.user.User;
-import com.djdjsn.emochat.data.user.UserRepository;
+import com.djdjsn.emochat.data.user.UserLoader;
 import com.djdjsn.emochat.ui.auth.AuthActivity;
+import com.djdjsn.emochat.utils.ProcessMemory;
+import com.google.firebase.FirebaseApp;
 import com.google.firebase.firestore.FirebaseFirestore;
-
-import java.util.Locale;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MemoryCacheSettings;
 
 public class ChatService extends Service {
+    // 별도의 프로세스(:sync)에서 실행되어 새 메세지 알림을 감시하는 서비스
+    // 화면 프로세스의 의존성 그래프를 사용하지 않고 Firestore 와 노티피케이션에 필요한 객체만 직접 만든다
 
     public static final int NOTIFICATION_ID_FOREGROUND = 100;
     public static final int NOTIFICATION_ID_CHAT = 101;
 
+    public static final long MIN_RECONNECT_DELAY_MILLIS = 1000;      // 리스너 재연결 대기시간의 시작값
+    public static final long MAX_RECONNECT_DELAY_MILLIS = 60000;     // 리스너 재연결 대기시간의 최대값
+    public static final int GC_INTERVAL_NOTICES = 50;                // 이 수만큼 알림을 처리할 때마다 처리한 알림을 정리
+
+    public static final String ACTION_SET_IN_CHAT = "com.djdjsn.emochat.action.SET_IN_CHAT";
+    public static final String EXTRA_UID = "uid";
+    public static final String EXTRA_IS_IN_CHAT = "is_in_chat";
+
     private NotificationManager notificationManager;
+    private ChatNotifier chatNotifier;
 
-    private PreferencesData preferencesData;
+    private NoticeCursorData noticeCursorData;         // 이 프로세스만 쓰는 파일 (화면 프로세스의 프레퍼런스는 읽지 않는다)
     private MessageNoticeRepository messageNoticeRepository;
-    private UserRepository userRepository;
 
-    private Thread thread;
-    private boolean isRunning;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable reconnect = this::startListening;
+    private ListenerRegistration noticeRegistration;
+    private long reconnectDelayMillis = MIN_RECONNECT_DELAY_MILLIS;
+    private String listeningUid;
+    private int consumedSinceGc;
+    private boolean isCollecting;
+    private String currentUid;          // 화면 프로세스에서 인텐트로 전달받은 현재 회원
+    private volatile boolean isInChat;  // 화면 프로세스에서 인텐트로 전달받은 채팅방 표시 여부
 
 
     public ChatService() {
     }
 
+    public static void start(Context context, String uid) {
+        Intent intent = new Intent(context, ChatService.class);
+        intent.putExtra(EXTRA_UID, uid);
+        context.startForegroundService(intent);
+    }
+
+    public static void setInChat(Context context, boolean isInChat) {
+        // 서비스는 다른 프로세스에서 실행되므로 채팅방 표시 여부를 인텐트로 전달한다
+        Intent intent = new Intent(context, ChatService.class);
+        intent.setAction(ACTION_SET_IN_CHAT);
+        intent.putExtra(EXTRA_IS_IN_CHAT, isInChat);
+        context.startService(intent);
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
 
-        notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-
-        preferencesData = new PreferencesData(getApplication());
+        // :sync 프로세스에서는 FirebaseInitProvider 가 실행되지 않으므로 직접 초기화한다
+        if (FirebaseApp.getApps(this).isEmpty()) {
+            FirebaseApp.initializeApp(this);
+        }
 
+        // 화면 프로세스와 디스크 캐시를 공유하지 않도록 메모리 캐시만 사용한다
         FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+        firestore.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                .setLocalCacheSettings(MemoryCacheSettings.newBuilder().build())
+                .build());
+
+        noticeCursorData = new NoticeCursorData(getApplication());
         messageNoticeRepository = new MessageNoticeRepository(firestore);
-        userRepository = new UserRepository(firestore);
+
+        notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        chatNotifier = new ChatNotifier(this, notificationManager, new UserLoader(firestore),
+                getActivityPendingIntent(), NOTIFICATION_ID_CHAT);
     }
 
     @Override
@@ -54,53 +101,138 @@ public class ChatService extends Service {
 
         startForeground(NOTIFICATION_ID_FOREGROUND, createForegroundNotification());
 
-        isRunning = true;
-        thread = new Thread(() -> {
-            while (isRunning) {
-                try {
-                    String currentUid = preferencesData.getCurrentUid();
-                    if (currentUid != null) {
-                        messageNoticeRepository.getRecentNoticeOf(currentUid,
-                                messageNotice -> {
-                                    if (messageNotice != null) {
-                                        if (!preferencesData.isInChat()) {
-                                            userRepository.getUser(messageNotice.getSenderUid(),
-                                                    this::sendChatNotification,
-                                                    Throwable::printStackTrace);
-                                        }
-                                        messageNoticeRepository.deleteNoticesOf(currentUid);
-                                    }
-                                },
-                                Throwable::printStackTrace);
-                    }
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-        thread.start();
+        if (intent != null && ACTION_SET_IN_CHAT.equals(intent.getAction())) {
+            isInChat = intent.getBooleanExtra(EXTRA_IS_IN_CHAT, false);
+            return START_STICKY;
+        }
 
+        // 시스템이 서비스를 다시 시작한 경우에는 인텐트가 없으므로 마지막으로 전달받은 회원을 읽은 뒤에 사용한다
+        if (intent != null) {
+            String uid = intent.getStringExtra(EXTRA_UID);
+            noticeCursorData.setListeningUid(uid);
+            onCurrentUid(uid);
+        } else {
+            noticeCursorData.whenLoaded(() -> onCurrentUid(noticeCursorData.getListeningUid()));
+        }
+
+        ProcessMemory.logAppProcesses(this);
         return START_STICKY;
     }
 
+    private void onCurrentUid(String uid) {
+
+        if (uid != null && !uid.equals(currentUid)) {
+            currentUid = uid;
+            stopListening();
+        }
+
+        // 이미 리스너가 등록되어 있다면 다시 등록하지 않는다 (커서를 읽은 뒤에 등록)
+        if (noticeRegistration == null) {
+            noticeCursorData.whenLoaded(this::startListening);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 화면 프로세스가 정리되었을 때의 메모리 차이를 확인할 수 있도록 기록한다
+        ProcessMemory.logAppProcesses(this);
+    }
+
     @Override
     public void onDestroy() {
-        if (isRunning) {
-            isRunning = false;
-            try {
-                thread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
+        handler.removeCallbacks(reconnect);
+        stopListening();
+        chatNotifier.cancel();
+        noticeCursorData.close();
         super.onDestroy();
     }
 
-    private void sendChatNotification(User sender) {
-        if (sender != null) {
-            notificationManager.notify(NOTIFICATION_ID_CHAT, createChatNotification(sender));
+    private void startListening() {
+
+        // 현재 회원에게 새로 도착한 알림을 실시간으로 전달받는다 (폴링하지 않음)
+        if (noticeRegistration != null) {
+            return;
+        }
+        if (currentUid == null) {
+            scheduleReconnect();
+            return;
         }
+
+        // 이 기기에서 마지막으로 처리한 알림 이후의 알림만 구독한다
+        listeningUid = currentUid;
+        noticeRegistration = messageNoticeRepository.listenNoticesAfter(currentUid,
+                noticeCursorData.getDeliveredCursor(currentUid), noticeCursorData.getIdCursor(currentUid),
+                messageNotice -> {
+                    reconnectDelayMillis = MIN_RECONNECT_DELAY_MILLIS;
+                    onNoticeAdded(messageNotice);
+                },
+                e -> {
+                    e.printStackTrace();
+                    stopListening();
+                    scheduleReconnect();
+                });
+
+        // 이전에 처리하고 남은 알림을 정리한다
+        collectConsumedNotices();
+    }
+
+    private void stopListening() {
+        if (noticeRegistration != null) {
+            noticeRegistration.remove();
+            noticeRegistration = null;
+        }
+    }
+
+    private void scheduleReconnect() {
+
+        // 오류가 반복되면 재연결 간격을 두 배씩 늘린다
+        handler.removeCallbacks(reconnect);
+        handler.postDelayed(reconnect, reconnectDelayMillis);
+        reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+    }
+
+    private void onNoticeAdded(MessageNotice messageNotice) {
+
+        // 커서보다 이전의 알림은 이미 처리한 것이므로 무시한다
+        if (NoticeCursorData.compare(messageNotice.getDelivered(), messageNotice.getMessageId(),
+                noticeCursorData.getDeliveredCursor(listeningUid), noticeCursorData.getIdCursor(listeningUid)) <= 0) {
+            return;
+        }
+        noticeCursorData.setNoticeCursor(listeningUid, messageNotice.getDelivered(), messageNotice.getMessageId());
+
+        if (!isInChat) {
+            // 짧은 시간 동안 도착한 알림을 모아서 채팅방별로 한 번에 표시한다
+            chatNotifier.add(messageNotice);
+        }
+
+        // 알림마다 삭제하지 않고 일정 수를 처리할 때마다 모아서 삭제한다
+        if (++consumedSinceGc >= GC_INTERVAL_NOTICES) {
+            collectConsumedNotices();
+        }
+    }
+
+    private void collectConsumedNotices() {
+
+        if (isCollecting || listeningUid == null || noticeCursorData.getDeliveredCursor(listeningUid) == null) {
+            return;
+        }
+        isCollecting = true;
+        consumedSinceGc = 0;
+
+        String uid = listeningUid;
+        messageNoticeRepository.deleteNoticesBefore(uid, noticeCursorData.getDeliveredCursor(uid),
+                count -> {
+                    isCollecting = false;
+                    // 한 배치를 가득 채웠다면 남은 알림이 있을 수 있으므로 이어서 삭제한다
+                    if (count == MessageNoticeRepository.GC_BATCH_LIMIT) {
+                        collectConsumedNotices();
+                    }
+                },
+                e -> {
+                    isCollecting = false;
+                    e.printStackTrace();
+                });
     }
 
     private Notification createForegroundNotification() {
@@ -119,20 +251,6 @@ public class ChatService extends Service {
     }
 
 
-    private Notification createChatNotification(User sender) {
-
-        String contentText = String.format(Locale.getDefault(),
-                "%s님이 메세지를 보내셨습니다", sender.getNickname());
-
-        return new Notification.Builder(this, EmoChatApplication.CHANNEL_ID_CHAT)
-                .setContentIntent(getActivityPendingIntent())
-                .setContentTitle("새 메세지")
-                .setContentText(contentText)
-                .setSmallIcon(R.drawable.ic_chat_service)
-                .setVisibility(Notification.VISIBILITY_PUBLIC)
-                .build();
-    }
-
     private PendingIntent getActivityPendingIntent() {
 
         Intent activityIntent = new Intent(this, AuthActivity.class);
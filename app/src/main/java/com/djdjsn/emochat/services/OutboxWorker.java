@@ -0,0 +1,53 @@
+package com.djdjsn.emochat.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.djdjsn.emochat.data.outbox.MessageOutbox;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.concurrent.ExecutionException;
+
+import dagger.hilt.EntryPoint;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.EntryPointAccessors;
+import dagger.hilt.components.SingletonComponent;
+
+public class OutboxWorker extends Worker {
+    // 네트워크가 연결되었을 때 보내지 못한 메세지를 다시 보내는 워커 (실패하면 지수적으로 간격을 늘려 재시도)
+
+    @EntryPoint
+    @InstallIn(SingletonComponent.class)
+    public interface OutboxWorkerEntryPoint {
+        MessageOutbox messageOutbox();
+    }
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+
+        MessageOutbox messageOutbox = EntryPointAccessors
+                .fromApplication(getApplicationContext(), OutboxWorkerEntryPoint.class)
+                .messageOutbox();
+
+        try {
+            Tasks.await(messageOutbox.drain());
+            // 오프라인이라 아직 반영되지 않은 메세지가 남아 있으면 나중에 다시 확인한다
+            return messageOutbox.getPendingCount() > 0 ? Result.retry() : Result.success();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return Result.retry();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return Result.retry();
+        }
+    }
+
+}
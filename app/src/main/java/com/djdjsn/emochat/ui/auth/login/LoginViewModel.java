@@ -6,6 +6,7 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.djdjsn.emochat.data.PreferencesData;
+import com.djdjsn.emochat.data.chat.ChatRepository;
 import com.djdjsn.emochat.data.user.User;
 import com.djdjsn.emochat.data.user.UserRepository;
 import com.djdjsn.emochat.utils.AuthUtils;
@@ -30,13 +31,16 @@ public class LoginViewModel extends ViewModel {
     private final FirebaseAuth firebaseAuth;
     private final PreferencesData preferencesData;
     private final UserRepository userRepository;
+    private final ChatRepository chatRepository;
 
 
     @Inject
-    public LoginViewModel(FirebaseAuth firebaseAuth, PreferencesData preferencesData, UserRepository userRepository) {
+    public LoginViewModel(FirebaseAuth firebaseAuth, PreferencesData preferencesData,
+                          UserRepository userRepository, ChatRepository chatRepository) {
         this.firebaseAuth = firebaseAuth;
         this.preferencesData = preferencesData;
         this.userRepository = userRepository;
+        this.chatRepository = chatRepository;
 
         currentUid = preferencesData.getCurrentUidLive();
     }
@@ -62,6 +66,14 @@ public class LoginViewModel extends ViewModel {
                             event.setValue(new Event.ShowGeneralMessage("회원정보 생성에 실패했습니다"));
                         });
             } else {
+                // 기존 채팅방의 참여자 목록 보정은 회원별로 한 번만 한다 (모두 저장된 뒤에 기록하므로 실패하면 다음 로그인에 다시 시도)
+                preferencesData.whenLoaded(() -> {
+                    if (!preferencesData.isChatsBackfilled(uid)) {
+                        chatRepository.backfillParticipants(uid,
+                                unused -> preferencesData.setChatsBackfilled(uid),
+                                Throwable::printStackTrace);
+                    }
+                });
                 preferencesData.setCurrentUid(uid);
             }
         }
@@ -13,17 +13,23 @@ import android.view.View;
 
 import com.djdjsn.emochat.R;
 import com.djdjsn.emochat.data.PreferencesData;
+import com.djdjsn.emochat.data.local.SyncEngine;
 import com.djdjsn.emochat.databinding.ActivityMainBinding;
 import com.djdjsn.emochat.services.ChatService;
 import com.google.firebase.auth.FirebaseAuth;
 
+import javax.inject.Inject;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 @AndroidEntryPoint
 public class MainActivity extends AppCompatActivity implements FirebaseAuth.AuthStateListener {
 
     private NavController navController;
-    private PreferencesData preferencesData;
+    @Inject
+    PreferencesData preferencesData;
+    @Inject
+    SyncEngine syncEngine;
     private FirebaseAuth firebaseAuth;
 
     @Override
@@ -40,8 +46,6 @@ public class MainActivity extends AppCompatActivity implements FirebaseAuth.Auth
 
         if (navHostFragment != null) {
             navController = navHostFragment.getNavController();
-            // navController 를 바텀 네비게이션 뷰와 연동한다
-            NavigationUI.setupWithNavController(binding.bottomNavigationView, navController);
         }
 
         // 채팅방에서는 바텀 네비게이션 뷰를 숨긴다
@@ -54,7 +58,6 @@ public class MainActivity extends AppCompatActivity implements FirebaseAuth.Auth
         });
 
         firebaseAuth = FirebaseAuth.getInstance();
-        preferencesData = new PreferencesData(getApplication());
 
         preferencesData.getCurrentUidLive().observe(this, uid -> {
             if (uid == null) {
@@ -62,7 +65,22 @@ public class MainActivity extends AppCompatActivity implements FirebaseAuth.Auth
             }
         });
 
-        startChatService();
+        // 프레퍼런스를 읽은 뒤에 현재 회원을 확인하여 메인 스레드에서 디스크를 기다리지 않는다
+        // 화면의 뷰모델은 생성자에서 현재 회원을 읽으므로 네비게이션 그래프도 이때 연결하여 첫 화면을 만든다
+        preferencesData.whenLoaded(() -> {
+            if (isDestroyed()) {
+                return;
+            }
+            navController.setGraph(R.navigation.nav_graph_main);
+            // navController 를 바텀 네비게이션 뷰와 연동한다
+            NavigationUI.setupWithNavController(binding.bottomNavigationView, navController);
+
+            String uid = preferencesData.getCurrentUid();
+            startChatService(uid);
+
+            // 로컬 데이터베이스에 Firestore 의 변경사항을 반영하기 시작한다
+            syncEngine.start(uid);
+        });
     }
 
     @Override
@@ -87,12 +105,13 @@ public class MainActivity extends AppCompatActivity implements FirebaseAuth.Auth
     public void onAuthStateChanged(@NonNull FirebaseAuth firebaseAuth) {
         if (firebaseAuth.getUid() == null) {
             preferencesData.setCurrentUid(null);
+            stopService(new Intent(this, ChatService.class));
+            syncEngine.clear();
         }
     }
 
-    private void startChatService() {
-        Intent intent = new Intent(this, ChatService.class);
-        stopService(intent);
-        startForegroundService(intent);
+    private void startChatService(String uid) {
+        // 알림 감시 서비스는 :sync 프로세스에서 실행되므로 현재 회원을 인텐트로 전달한다
+        ChatService.start(this, uid);
     }
 }
\ No newline at end of file
@@ -41,6 +41,8 @@ public class ChatListFragment extends Fragment {
         ChatPreviewAdapter adapter = new ChatPreviewAdapter();
         binding.recyclerChatPreview.setAdapter(adapter);
         
+        binding.imageViewSearchMessages.setOnClickListener(v -> viewModel.onSearchMessagesClick());
+
         adapter.setOnItemSelectedListener(position -> {
             ChatPreview chatPreview = adapter.getCurrentList().get(position);
             viewModel.onChatClick(chatPreview);
@@ -60,6 +62,8 @@ public class ChatListFragment extends Fragment {
             if (event instanceof ChatListViewModel.Event.NavigateToChatScreen) {
                 String chatId = ((ChatListViewModel.Event.NavigateToChatScreen) event).chatId;
                 navController.navigate(ChatListFragmentDirections.actionGlobalChatRoomFragment(chatId));
+            } else if (event instanceof ChatListViewModel.Event.NavigateToMessageSearchScreen) {
+                navController.navigate(ChatListFragmentDirections.actionChatListFragmentToMessageSearchFragment());
             }
         });
     }
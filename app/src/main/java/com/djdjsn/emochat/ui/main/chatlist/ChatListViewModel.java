@@ -6,9 +6,7 @@ import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
 
 import com.djdjsn.emochat.data.PreferencesData;
-import com.djdjsn.emochat.data.chat.Chat;
 import com.djdjsn.emochat.data.chat.ChatPreview;
-import com.djdjsn.emochat.data.chat.ChatRepository;
 import com.djdjsn.emochat.data.chatannotation.ChatAnnotation;
 import com.djdjsn.emochat.data.chatannotation.ChatAnnotationRepository;
 import com.djdjsn.emochat.data.user.User;
@@ -33,23 +31,24 @@ public class ChatListViewModel extends ViewModel {
 
     @Inject
     public ChatListViewModel(PreferencesData preferencesData,
-                             ChatRepository chatRepository,
                              ChatAnnotationRepository chatAnnotationRepository,
                              UserRepository userRepository) {
 
         String uid = preferencesData.getCurrentUid();
 
-        LiveData<List<Chat>> chats = chatRepository.getChatsOf(uid);
-
-        LiveData<List<ChatAnnotation>> chatAnnotations = Transformations.switchMap(chats, _chats ->
-                chatAnnotationRepository.getAnnotationList(ListUtils.map(_chats, Chat::getId)));
+        // SyncEngine 이 동기화한 로컬 사본을 구독한다 (참여한 채팅방의 요약 정보만)
+        LiveData<List<ChatAnnotation>> chatAnnotations = chatAnnotationRepository.getAnnotationsOf(uid);
 
         LiveData<Map<String, User>> recentUserMap = Transformations.switchMap(chatAnnotations, _chatAnnotations ->
-                userRepository.getUserMap(ListUtils.map(_chatAnnotations, ChatAnnotation::getRecentUserUid)));
+                userRepository.getLocalUserMap(_chatAnnotations != null
+                        ? ListUtils.map(_chatAnnotations, ChatAnnotation::getRecentUserUid) : null));
 
         chatPreviews = Transformations.switchMap(chatAnnotations, _chatAnnotations ->
                 Transformations.map(recentUserMap, _recentUserMap -> {
                     List<ChatPreview> _chatPreviews = new ArrayList<>();
+                    if (_chatAnnotations == null || _recentUserMap == null) {
+                        return _chatPreviews;
+                    }
                     for (int i = 0; i < _chatAnnotations.size(); i++) {
                         ChatAnnotation chatAnnotation = _chatAnnotations.get(i);
                         User recentUser = _recentUserMap.get(chatAnnotation.getRecentUserUid());
@@ -81,6 +80,10 @@ public class ChatListViewModel extends ViewModel {
         event.setValue(new Event.NavigateToChatScreen(chatPreview.getChatId()));
     }
 
+    public void onSearchMessagesClick() {
+        event.setValue(new Event.NavigateToMessageSearchScreen());
+    }
+
 
     public static class Event {
 
@@ -91,6 +94,9 @@ public class ChatListViewModel extends ViewModel {
                 this.chatId = chatId;
             }
         }
+
+        public static class NavigateToMessageSearchScreen extends Event {
+        }
     }
 
 }
@@ -2,7 +2,6 @@ package com.djdjsn.emochat.ui.main.chatroom;
 
 import android.content.Context;
 import android.os.Bundle;
-import android.os.CountDownTimer;
 import android.util.Log;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
@@ -15,15 +14,19 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.djdjsn.emochat.R;
 import com.djdjsn.emochat.data.emoji.Emoji;
+import com.djdjsn.emochat.data.message.Message;
 import com.djdjsn.emochat.databinding.FragmentChatRoomBinding;
 import com.djdjsn.emochat.utils.UiUtils;
 import com.djdjsn.emochat.utils.res.ColorRes;
 
+import java.util.List;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 @AndroidEntryPoint
@@ -33,7 +36,7 @@ public class ChatRoomFragment extends Fragment {
     private ChatRoomViewModel viewModel;
     private NavController navController;
 
-    private CountDownTimer ticker;
+    private String lastMessageId;
 
 
     public ChatRoomFragment() {
@@ -52,18 +55,47 @@ public class ChatRoomFragment extends Fragment {
         binding.fabSubmitMessage.setOnClickListener(v -> viewModel.onSubmitClick());
 
         binding.recyclerMessage.setHasFixedSize(true);
+        binding.recyclerMessage.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // 맨 위에 도달하면 이전 메세지를, 맨 아래로 돌아오면 이전 페이지를 해제한다
+                if (!recyclerView.canScrollVertically(-1)) {
+                    viewModel.onScrolledToTop();
+                } else if (!recyclerView.canScrollVertically(1)) {
+                    viewModel.onScrolledToBottom();
+                }
+                reportVisibleMessages();
+            }
+        });
+
+        // 보낼 때 사용자의 닉네임을 함께 저장하므로 로컬 회원정보를 구독해 둔다
+        viewModel.getCurrentUser().observe(getViewLifecycleOwner(), currentUser -> {
+        });
 
         // 메세지 표시
         viewModel.getCounterpartUser().observe(getViewLifecycleOwner(), counterpart -> {
 
             MessageAdapter messageAdapter = new MessageAdapter(Glide.with(this), counterpart, viewModel.getCurrentUid());
             binding.recyclerMessage.setAdapter(messageAdapter);
+            lastMessageId = null;
 
             viewModel.getMessages().observe(getViewLifecycleOwner(), messages -> {
                 if (messages != null) {
-                    messageAdapter.submitList(messages);
-                    // 마지막 메세지로 스크롤한다
-                    if (!messages.isEmpty()) {
+                    // 새 메세지가 도착했을 때만 마지막 메세지로 스크롤한다 (이전 페이지 로드 시에는 스크롤하지 않음)
+                    // 검색 결과 주변 구간을 보여주는 동안에는 해당 메세지로 스크롤한다
+                    String lastId = messages.isEmpty() ? null : messages.get(messages.size() - 1).getId();
+                    boolean hasNewMessage = lastId != null && !lastId.equals(lastMessageId) && !viewModel.isShowingContext();
+                    lastMessageId = lastId;
+                    String anchorId = viewModel.consumeAnchorMessageId(messages);
+                    messageAdapter.submitList(messages, () -> {
+                        if (binding != null) {
+                            if (anchorId != null) {
+                                scrollToMessage(messages, anchorId);
+                            }
+                            binding.recyclerMessage.post(this::reportVisibleMessages);
+                        }
+                    });
+                    if (hasNewMessage) {
                         binding.recyclerMessage.postDelayed(() -> {
                             if (binding != null) {
                                 binding.recyclerMessage.smoothScrollToPosition(messageAdapter.getItemCount() - 1);
@@ -75,6 +107,9 @@ public class ChatRoomFragment extends Fragment {
                 }
             });
             binding.progressBarMessages.setVisibility(View.INVISIBLE);
+
+            // 상대의 읽음 시각이 바뀌면 해당 구간의 읽음 표시만 갱신한다
+            viewModel.getCounterpartReadMillis().observe(getViewLifecycleOwner(), messageAdapter::setReadMillis);
         });
 
         // 이모티콘 표시
@@ -110,6 +145,17 @@ public class ChatRoomFragment extends Fragment {
             }
         });
 
+        // 보내지 못한 메세지가 있으면 다시 보내기 안내를 표시한다
+        binding.textViewFailedMessages.setOnClickListener(v -> viewModel.onRetryFailedClick());
+        viewModel.getFailedMessageCount().observe(getViewLifecycleOwner(), count -> {
+            if (count != null && count > 0) {
+                binding.textViewFailedMessages.setText("보내지 못한 메세지 " + count + "개 · 눌러서 다시 보내기");
+                binding.textViewFailedMessages.setVisibility(View.VISIBLE);
+            } else {
+                binding.textViewFailedMessages.setVisibility(View.GONE);
+            }
+        });
+
         viewModel.getEvent().observe(getViewLifecycleOwner(), event -> {
             if (event instanceof ChatRoomViewModel.Event.ShowGeneralMessage) {
                 String message = ((ChatRoomViewModel.Event.ShowGeneralMessage) event).message;
@@ -131,29 +177,39 @@ public class ChatRoomFragment extends Fragment {
     public void onResume() {
         super.onResume();
         viewModel.onResumeChat();
-        ticker = new CountDownTimer(86400000, 1000) {
-            @Override
-            public void onTick(long l) {
-                viewModel.onTick();
-            }
-
-            @Override
-            public void onFinish() {
-            }
-        };
-        ticker.start();
+        reportVisibleMessages();
     }
 
     @Override
     public void onPause() {
         viewModel.onPauseChat();
-        if (ticker != null) {
-            ticker.cancel();
-            ticker = null;
-        }
         super.onPause();
     }
 
+    private void reportVisibleMessages() {
+
+        // 화면이 사용자에게 보이는 동안에만 마지막으로 보이는 메세지 위치를 전달한다
+        if (binding == null || !isResumed()) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) binding.recyclerMessage.getLayoutManager();
+        if (layoutManager != null) {
+            viewModel.onMessagesVisible(layoutManager.findLastVisibleItemPosition());
+        }
+    }
+
+    private void scrollToMessage(List<Message> messages, String messageId) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i).getId().equals(messageId)) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) binding.recyclerMessage.getLayoutManager();
+                if (layoutManager != null) {
+                    layoutManager.scrollToPositionWithOffset(i, binding.recyclerMessage.getHeight() / 3);
+                }
+                return;
+            }
+        }
+    }
+
     private void hideKeyboard(View view) {
         if (view != null) {
             InputMethodManager imm = (InputMethodManager)requireContext().getSystemService(Context.INPUT_METHOD_SERVICE);
@@ -8,15 +8,16 @@ import androidx.lifecycle.SavedStateHandle;
 import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
 
+import com.djdjsn.emochat.data.AppState;
 import com.djdjsn.emochat.data.PreferencesData;
 import com.djdjsn.emochat.data.chat.Chat;
 import com.djdjsn.emochat.data.chat.ChatRepository;
 import com.djdjsn.emochat.data.emoji.Emoji;
 import com.djdjsn.emochat.data.emoji.EmojiRepository;
+import com.djdjsn.emochat.data.local.SyncEngine;
 import com.djdjsn.emochat.data.message.Message;
-import com.djdjsn.emochat.data.message.MessageRepository;
-import com.djdjsn.emochat.data.messagenotice.MessageNotice;
-import com.djdjsn.emochat.data.messagenotice.MessageNoticeRepository;
+import com.djdjsn.emochat.data.message.MessagePager;
+import com.djdjsn.emochat.data.outbox.MessageOutbox;
 import com.djdjsn.emochat.data.user.User;
 import com.djdjsn.emochat.data.user.UserRepository;
 import com.djdjsn.emochat.utils.StorageUtils;
@@ -36,47 +37,80 @@ public class ChatRoomViewModel extends ViewModel {
     private final MutableLiveData<Emoji> selectedEmoji = new MutableLiveData<>();
 
     private final String chatId;
+    private String anchorMessageId;     // 검색 결과에서 이동해 온 경우 스크롤할 메세지
     private final String currentUid;
     private final LiveData<Chat> chat;
+    private final MessagePager messagePager;
     private final LiveData<List<Message>> messages;
 
-    private final LiveData<User> currentUser;
+    private final LiveData<User> currentUser;     // 알림에 함께 저장할 닉네임도 로컬 사본에서 읽는다
     private final LiveData<User> counterpartUser;
+    private final LiveData<Long> counterpartReadMillis;
+    private long readMillis;            // 마지막으로 기록한 사용자의 읽음 시각
 
     private final LiveData<List<Emoji>> emojis;
+    private final LiveData<Integer> failedMessageCount;    // 재시도 횟수를 모두 사용하여 보내지 못한 메세지 수
 
-    private final MessageRepository messageRepository;
-    private final MessageNoticeRepository messageNoticeRepository;
-    private final PreferencesData preferencesData;
+    private final ChatRepository chatRepository;
+    private final MessageOutbox messageOutbox;
+    private final AppState appState;
+    private final SyncEngine syncEngine;
 
 
     @Inject
     public ChatRoomViewModel(SavedStateHandle savedStateHandle,
                              PreferencesData preferencesData,
+                             AppState appState,
+                             SyncEngine syncEngine,
                              ChatRepository chatRepository,
-                             MessageRepository messageRepository,
-                             MessageNoticeRepository messageNoticeRepository,
+                             MessagePager.Factory messagePagerFactory,
+                             MessageOutbox messageOutbox,
                              UserRepository userRepository,
                              EmojiRepository emojiRepository) {
 
-        this.messageRepository = messageRepository;
-        this.messageNoticeRepository = messageNoticeRepository;
-        this.preferencesData = preferencesData;
+        this.chatRepository = chatRepository;
+        this.messageOutbox = messageOutbox;
+        this.appState = appState;
+        this.syncEngine = syncEngine;
 
         chatId = savedStateHandle.get("chat_id");
         currentUid = preferencesData.getCurrentUid();
 
+        // 화면은 로컬 사본을 구독하고, 채팅방이 열려 있는 동안 메세지를 동기화한다
+        syncEngine.watchChat(chatId);
         chat = chatRepository.getChat(chatId);
-        messages = messageRepository.getMessagesIn(chatId);
-        currentUser = userRepository.getUser(currentUid);
+        messagePager = messagePagerFactory.create(chatId);
+        messages = messagePager.getMessages();
+
+        // 검색 결과에서 이동해 온 경우 해당 메세지 주변 구간부터 보여준다
+        Long anchorMillis = savedStateHandle.get("anchor_millis");
+        anchorMessageId = savedStateHandle.get("anchor_message_id");
+        if (anchorMillis != null && anchorMillis >= 0) {
+            messagePager.jumpTo(anchorMillis);
+        }
+        currentUser = userRepository.getLocalUser(currentUid);
         counterpartUser = Transformations.switchMap(chat, chat -> {
             if (chat != null) {
-                return userRepository.getUser(currentUid.equals(chat.getUid1()) ? chat.getUid2() : chat.getUid1());
+                return userRepository.getLocalUser(currentUid.equals(chat.getUid1()) ? chat.getUid2() : chat.getUid1());
             }
             return new MutableLiveData<>(null);
         });
+        counterpartReadMillis = Transformations.distinctUntilChanged(Transformations.map(chat, chat -> {
+            if (chat == null) {
+                return 0L;
+            }
+            return chat.lastReadMillisOf(currentUid.equals(chat.getUid1()) ? chat.getUid2() : chat.getUid1());
+        }));
 
         emojis = emojiRepository.getEmojis();
+        failedMessageCount = Transformations.map(messageOutbox.getFailedMessagesIn(chatId),
+                failed -> failed != null ? failed.size() : 0);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        syncEngine.unwatchChat(chatId);
     }
 
     public LiveData<Event> getEvent() {
@@ -93,6 +127,26 @@ public class ChatRoomViewModel extends ViewModel {
         return messages;
     }
 
+    public boolean isShowingContext() {
+        return messagePager.isShowingContext();
+    }
+
+    public String consumeAnchorMessageId(List<Message> messageList) {
+
+        // 스크롤할 메세지가 목록에 나타났을 때 한 번만 돌려준다
+        if (anchorMessageId == null || messageList == null) {
+            return null;
+        }
+        for (Message message : messageList) {
+            if (message.getId().equals(anchorMessageId)) {
+                String id = anchorMessageId;
+                anchorMessageId = null;
+                return id;
+            }
+        }
+        return null;
+    }
+
     public LiveData<User> getCurrentUser() {
         return currentUser;
     }
@@ -101,6 +155,10 @@ public class ChatRoomViewModel extends ViewModel {
         return counterpartUser;
     }
 
+    public LiveData<Long> getCounterpartReadMillis() {
+        return counterpartReadMillis;
+    }
+
     public LiveData<List<Emoji>> getEmojis() {
         return emojis;
     }
@@ -109,35 +167,65 @@ public class ChatRoomViewModel extends ViewModel {
         return selectedEmoji;
     }
 
+    public LiveData<Integer> getFailedMessageCount() {
+        return failedMessageCount;
+    }
+
 
     public void onCurrentMessageChanged(String value) {
         currentMessage = value.trim();
     }
 
 
+    public void onScrolledToTop() {
+        // 이전 메세지 페이지를 불러온다
+        messagePager.loadOlder();
+    }
+
+    public void onScrolledToBottom() {
+        // 최근 구간과 떨어진 구간(검색 결과 주변, 최근 쪽 페이지를 해제한 구간)이면 이후 메세지를 불러오고,
+        // 최근 메세지로 돌아오면 이전 페이지를 해제한다
+        if (messagePager.isShowingContext()) {
+            messagePager.loadNewer();
+        } else {
+            messagePager.releaseOlderPages();
+        }
+    }
+
     public void onResumeChat() {
-        preferencesData.setIsInChat(true);
+        appState.setInChat(true);
     }
 
     public void onPauseChat() {
-        preferencesData.setIsInChat(false);
+        appState.setInChat(false);
     }
 
-    public void onTick() {
-        updateMessagesAsRead();
-        //deleteMessageNotices();
-    }
+    public void onMessagesVisible(int lastVisiblePosition) {
 
-    private void updateMessagesAsRead() {
-        // 상대의 메세지를 읽음 처리한다
-        User counterpart = counterpartUser.getValue();
-        if (counterpart != null) {
-            messageRepository.updateMessagesAsRead(chatId, counterpart.getUid());
+        // 화면에 보이는 가장 최근의 상대 메세지까지 읽음 시각을 올린다
+        List<Message> messageList = messages.getValue();
+        if (messageList == null || lastVisiblePosition < 0 || lastVisiblePosition >= messageList.size()) {
+            return;
+        }
+
+        Chat chatValue = chat.getValue();
+        long watermark = readMillis;
+        if (chatValue != null) {
+            watermark = Math.max(watermark, chatValue.lastReadMillisOf(currentUid));
         }
-    }
 
-    private void deleteMessageNotices() {
-        messageNoticeRepository.deleteNoticesOf(currentUid);
+        for (int i = lastVisiblePosition; i >= 0; i--) {
+            Message message = messageList.get(i);
+            if (message.getCreated() <= watermark) {
+                return;
+            }
+            if (!message.getUid().equals(currentUid)) {
+                // 새로 보이게 된 메세지가 있을 때만 한 번 기록한다
+                readMillis = message.getCreated();
+                chatRepository.updateLastRead(chatId, currentUid, readMillis);
+                return;
+            }
+        }
     }
 
     public void onSubmitClick() {
@@ -157,18 +245,28 @@ public class ChatRoomViewModel extends ViewModel {
             emojiUrl = StorageUtils.getImageUrl("emojis", emojiFileName);
         }
 
+        User sender = currentUser.getValue();
+        String senderNickname = sender != null ? sender.getNickname() : null;
+
         Message message = new Message(chatId, currentUid, emojiUrl, currentMessage);
-        messageRepository.addMessage(message,
-                unused -> {
-                    event.setValue(new Event.ClearMessageInput());
-                    selectedEmoji.setValue(null);
-                    messageNoticeRepository.addNotice(
-                            new MessageNotice(message.getId(), chatId, currentUid, counterpart.getUid()));
-                },
-                e -> {
-                    e.printStackTrace();
-                    event.setValue(new Event.ShowGeneralMessage("메세지를 보내지 못했습니다"));
-                });
+        // 로컬 쓰기는 리스너에 즉시 반영되므로 서버 응답을 기다리지 않고 입력창을 비운다
+        event.setValue(new Event.ClearMessageInput());
+        selectedEmoji.setValue(null);
+
+        // 기기에 먼저 저장되므로 전송에 실패해도 네트워크가 연결되면 다시 보낸다
+        messageOutbox.send(message, senderNickname, counterpart.getUid(), e -> {
+            e.printStackTrace();
+            event.setValue(new Event.ShowGeneralMessage("메세지를 보내지 못했습니다. 연결되면 다시 보냅니다"));
+        });
+    }
+
+    public void onRetryFailedClick() {
+
+        // 보내지 못한 메세지를 작성 순서대로 다시 보낸다
+        messageOutbox.retryFailed(chatId, e -> {
+            e.printStackTrace();
+            event.setValue(new Event.ShowGeneralMessage("메세지를 보내지 못했습니다"));
+        });
     }
 
     public void onEmojiClick(Emoji emoji) {
@@ -45,7 +45,10 @@ public class MessageAdapter extends ListAdapter<Message, RecyclerView.ViewHolder
                 glide.load(Uri.parse(model.getEmojiUrl())).into(binding.imageViewEmoji);
             }
 
-            binding.imageViewIsRead.setAlpha(model.isRead() ? 0.9f : 0.2f);
+            binding.imageViewIsRead.setAlpha(model.getCreated() <= readMillis ? 0.9f : 0.2f);
+
+            // 서버에 반영되기 전의 메세지는 흐리게 표시한다
+            binding.getRoot().setAlpha(model.isPending() ? 0.5f : 1f);
         }
     }
 
@@ -85,6 +88,7 @@ public class MessageAdapter extends ListAdapter<Message, RecyclerView.ViewHolder
     private final RequestManager glide;
     private final User counterpart;
     private final String currentUid;
+    private long readMillis;            // 상대가 읽은 메세지의 작성 시각
 
 
     public MessageAdapter(RequestManager glide, User counterpart, String currentUid) {
@@ -98,6 +102,32 @@ public class MessageAdapter extends ListAdapter<Message, RecyclerView.ViewHolder
         this.onItemSelectedListener = listener;
     }
 
+    public void setReadMillis(long millis) {
+
+        // 읽음 상태가 바뀐 메세지 구간만 다시 바인드한다 (메세지는 작성 시각 순으로 정렬되어 있음)
+        long from = Math.min(readMillis, millis);
+        long to = Math.max(readMillis, millis);
+        readMillis = millis;
+
+        int start = -1;
+        int end = -1;
+        for (int i = 0; i < getItemCount(); i++) {
+            long created = getItem(i).getCreated();
+            if (created > to) {
+                break;
+            }
+            if (created > from) {
+                if (start < 0) {
+                    start = i;
+                }
+                end = i;
+            }
+        }
+        if (start >= 0) {
+            notifyItemRangeChanged(start, end - start + 1);
+        }
+    }
+
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
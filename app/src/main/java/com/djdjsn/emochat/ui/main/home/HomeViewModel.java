@@ -2,23 +2,18 @@ package com.djdjsn.emochat.ui.main.home;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
 
 import com.djdjsn.emochat.data.PreferencesData;
 import com.djdjsn.emochat.data.chat.Chat;
 import com.djdjsn.emochat.data.chat.ChatRepository;
-import com.djdjsn.emochat.data.userrelation.UserRelation;
 import com.djdjsn.emochat.data.userrelation.UserRelationsRepository;
 import com.djdjsn.emochat.data.user.User;
 import com.djdjsn.emochat.data.user.UserRepository;
-import com.djdjsn.emochat.utils.ListUtils;
 import com.djdjsn.emochat.utils.res.StringRes;
 import com.google.firebase.auth.FirebaseAuth;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -52,19 +47,9 @@ public class HomeViewModel extends ViewModel {
 
         uid = preferencesData.getCurrentUid();
 
-        currentUser = userRepository.getUser(uid);
-
-        LiveData<List<UserRelation>> relations = userRelationsRepository.getRelations(uid);
-        LiveData<Map<String, User>> friendMap = Transformations.switchMap(relations, _relations -> {
-           if (_relations != null) {
-               List<String> others = ListUtils.map(_relations, UserRelation::getOther);
-               return userRepository.getUserMap(others);
-           }
-           return new MutableLiveData<>(null);
-        });
-        friends = Transformations.map(friendMap, map -> {
-            return map != null ? new ArrayList<>(map.values()) : null;
-        });
+        // SyncEngine 이 동기화한 로컬 사본을 구독한다
+        currentUser = userRepository.getLocalUser(uid);
+        friends = userRepository.getLocalFriendsOf(uid);
     }
 
     public LiveData<Event> getEvent() {
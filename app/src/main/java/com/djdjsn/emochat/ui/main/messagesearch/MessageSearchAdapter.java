@@ -0,0 +1,93 @@
+package com.djdjsn.emochat.ui.main.messagesearch;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.djdjsn.emochat.data.message.Message;
+import com.djdjsn.emochat.data.user.User;
+import com.djdjsn.emochat.databinding.MessageSearchItemBinding;
+import com.djdjsn.emochat.utils.res.StringRes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MessageSearchAdapter extends ListAdapter<Message, MessageSearchAdapter.MessageSearchViewHolder> {
+
+    class MessageSearchViewHolder extends RecyclerView.ViewHolder {
+
+        private final MessageSearchItemBinding binding;
+
+        public MessageSearchViewHolder(MessageSearchItemBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+
+            binding.getRoot().setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && onItemSelectedListener != null) {
+                    onItemSelectedListener.onItemSelected(position);
+                }
+            });
+        }
+
+        public void bind(Message model) {
+            User sender = senderMap.get(model.getUid());
+            binding.textViewSenderNickname.setText(sender != null ? sender.getNickname() : "");
+            binding.textViewContent.setText(model.getContent());
+            binding.textViewDateTime.setText(StringRes.dateTime(model.getCreated()));
+        }
+    }
+
+    public interface OnItemSelectedListener {
+        void onItemSelected(int position);
+    }
+
+    private OnItemSelectedListener onItemSelectedListener;
+    private Map<String, User> senderMap = new HashMap<>();
+
+
+    public MessageSearchAdapter() {
+        super(new DiffUtilCallback());
+    }
+
+    public void setOnItemSelectedListener(OnItemSelectedListener listener) {
+        this.onItemSelectedListener = listener;
+    }
+
+    public void setSenderMap(Map<String, User> senderMap) {
+        this.senderMap = senderMap != null ? senderMap : new HashMap<>();
+        notifyItemRangeChanged(0, getItemCount());
+    }
+
+    @NonNull
+    @Override
+    public MessageSearchViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater layoutInflater = LayoutInflater.from(parent.getContext());
+        MessageSearchItemBinding binding = MessageSearchItemBinding.inflate(layoutInflater, parent, false);
+        return new MessageSearchViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MessageSearchViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+
+    static class DiffUtilCallback extends DiffUtil.ItemCallback<Message> {
+
+        @Override
+        public boolean areItemsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+            return oldItem.equals(newItem);
+        }
+    }
+
+}
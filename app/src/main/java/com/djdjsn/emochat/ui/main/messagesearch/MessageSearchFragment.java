@@ -0,0 +1,104 @@
+package com.djdjsn.emochat.ui.main.messagesearch;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.View;
+import android.view.inputmethod.InputMethodManager;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.navigation.NavController;
+import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.djdjsn.emochat.R;
+import com.djdjsn.emochat.data.message.Message;
+import com.djdjsn.emochat.databinding.FragmentMessageSearchBinding;
+import com.djdjsn.emochat.utils.UiUtils;
+
+import dagger.hilt.android.AndroidEntryPoint;
+
+@AndroidEntryPoint
+public class MessageSearchFragment extends Fragment {
+
+    private FragmentMessageSearchBinding binding;
+    private MessageSearchViewModel viewModel;
+    private NavController navController;
+
+
+    public MessageSearchFragment() {
+        super(R.layout.fragment_message_search);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        binding = FragmentMessageSearchBinding.bind(view);
+        viewModel = new ViewModelProvider(this).get(MessageSearchViewModel.class);
+        navController = Navigation.findNavController(view);
+
+        UiUtils.setOnTextChangeListener(binding.editTextQuery, s -> viewModel.onQueryChanged(s));
+
+        binding.recyclerMessages.setHasFixedSize(true);
+        MessageSearchAdapter adapter = new MessageSearchAdapter();
+        binding.recyclerMessages.setAdapter(adapter);
+        binding.recyclerMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // 맨 아래에 도달하면 다음 페이지의 결과를 보여준다
+                if (!recyclerView.canScrollVertically(1)) {
+                    viewModel.onScrolledToEnd();
+                }
+            }
+        });
+
+        adapter.setOnItemSelectedListener(position -> {
+            Message message = adapter.getCurrentList().get(position);
+            viewModel.onMessageClick(message);
+            hideKeyboard(requireView());
+        });
+
+        viewModel.getResults().observe(getViewLifecycleOwner(), messages -> {
+            if (messages != null) {
+                adapter.submitList(messages);
+                boolean hasQuery = binding.editTextQuery.getText().toString().trim().length() > 0;
+                binding.textViewNoMessages.setVisibility(messages.isEmpty() && hasQuery ? View.VISIBLE : View.INVISIBLE);
+            } else {
+                Toast.makeText(requireContext(), "메세지 검색에 실패했습니다", Toast.LENGTH_SHORT).show();
+            }
+            binding.progressBarMessages.setVisibility(View.INVISIBLE);
+        });
+
+        viewModel.getSenderMap().observe(getViewLifecycleOwner(), adapter::setSenderMap);
+
+        viewModel.getEvent().observe(getViewLifecycleOwner(), event -> {
+            if (event instanceof MessageSearchViewModel.Event.ShowLoadingUI) {
+                binding.progressBarMessages.setVisibility(View.VISIBLE);
+                binding.textViewNoMessages.setVisibility(View.INVISIBLE);
+            } else if (event instanceof MessageSearchViewModel.Event.NavigateToChatRoom) {
+                MessageSearchViewModel.Event.NavigateToChatRoom navigate = (MessageSearchViewModel.Event.NavigateToChatRoom) event;
+                navController.navigate(MessageSearchFragmentDirections.actionGlobalChatRoomFragment(navigate.chatId)
+                        .setAnchorMillis(navigate.anchorMillis)
+                        .setAnchorMessageId(navigate.anchorMessageId));
+            }
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+
+    private void hideKeyboard(View view) {
+        if (view != null) {
+            InputMethodManager imm = (InputMethodManager)requireContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+            imm.hideSoftInputFromWindow(view.getWindowToken(), 0);
+        }
+    }
+
+}
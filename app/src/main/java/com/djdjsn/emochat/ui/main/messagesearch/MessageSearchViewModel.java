@@ -0,0 +1,145 @@
+package com.djdjsn.emochat.ui.main.messagesearch;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModel;
+
+import com.djdjsn.emochat.data.message.Message;
+import com.djdjsn.emochat.data.message.MessageRepository;
+import com.djdjsn.emochat.data.user.User;
+import com.djdjsn.emochat.data.user.UserRepository;
+import com.djdjsn.emochat.utils.ListUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.lifecycle.HiltViewModel;
+
+@HiltViewModel
+public class MessageSearchViewModel extends ViewModel {
+
+    public static final long SEARCH_DELAY_MILLIS = 300;     // 입력이 멈춘 뒤 검색하기까지의 지연
+    public static final int PAGE_SIZE = 30;                 // 한 번에 보여줄 검색 결과 수
+
+    private final MutableLiveData<Event> event = new MutableLiveData<>();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::search;
+
+    private String query = "";
+    private int searchCount;                                // 늦게 도착한 이전 검색 결과를 버리기 위한 번호
+    private List<Message> rankedResults = new ArrayList<>();    // 점수 순으로 정렬된 전체 결과
+    private int pageCount;
+
+    private final MutableLiveData<List<Message>> results = new MutableLiveData<>(new ArrayList<>());
+    private final LiveData<Map<String, User>> senderMap;
+
+    private final MessageRepository messageRepository;
+
+
+    @Inject
+    public MessageSearchViewModel(MessageRepository messageRepository, UserRepository userRepository) {
+
+        this.messageRepository = messageRepository;
+
+        senderMap = Transformations.switchMap(results, _results ->
+                userRepository.getLocalUserMap(_results != null ? ListUtils.map(_results, Message::getUid) : null));
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        handler.removeCallbacks(searchRunnable);
+    }
+
+    public LiveData<Event> getEvent() {
+        event.setValue(null);
+        return event;
+    }
+
+    public LiveData<List<Message>> getResults() {
+        return results;
+    }
+
+    public LiveData<Map<String, User>> getSenderMap() {
+        return senderMap;
+    }
+
+
+    public void onQueryChanged(String value) {
+
+        // 입력이 잠시 멈췄을 때 한 번만 검색한다
+        query = value.trim();
+        handler.removeCallbacks(searchRunnable);
+        if (query.isEmpty()) {
+            searchCount++;
+            rankedResults = new ArrayList<>();
+            results.setValue(rankedResults);
+            return;
+        }
+        event.setValue(new Event.ShowLoadingUI());
+        handler.postDelayed(searchRunnable, SEARCH_DELAY_MILLIS);
+    }
+
+    public void onScrolledToEnd() {
+
+        // 다음 페이지의 검색 결과를 보여준다
+        if (pageCount * PAGE_SIZE < rankedResults.size()) {
+            pageCount++;
+            publish();
+        }
+    }
+
+    public void onMessageClick(Message message) {
+        event.setValue(new Event.NavigateToChatRoom(message.getChatId(), message.getCreated(), message.getId()));
+    }
+
+    private void search() {
+
+        int count = ++searchCount;
+        messageRepository.searchMessages(query, ranked -> {
+            if (count != searchCount) {
+                return;
+            }
+            if (ranked == null) {
+                results.setValue(null);
+                return;
+            }
+            rankedResults = ranked;
+            pageCount = 1;
+            publish();
+        });
+    }
+
+    private void publish() {
+        int size = Math.min(pageCount * PAGE_SIZE, rankedResults.size());
+        results.setValue(new ArrayList<>(rankedResults.subList(0, size)));
+    }
+
+
+    public static class Event {
+
+        public static class ShowLoadingUI extends Event {
+        }
+
+        public static class NavigateToChatRoom extends Event {
+            public final String chatId;
+            public final long anchorMillis;
+            public final String anchorMessageId;
+
+            public NavigateToChatRoom(String chatId, long anchorMillis, String anchorMessageId) {
+                this.chatId = chatId;
+                this.anchorMillis = anchorMillis;
+                this.anchorMessageId = anchorMessageId;
+            }
+        }
+    }
+
+}
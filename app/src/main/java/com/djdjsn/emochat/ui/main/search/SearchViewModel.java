@@ -9,6 +9,7 @@ import com.djdjsn.emochat.data.PreferencesData;
 import com.djdjsn.emochat.data.userrelation.UserRelationsRepository;
 import com.djdjsn.emochat.data.user.User;
 import com.djdjsn.emochat.data.user.UserRepository;
+import com.djdjsn.emochat.utils.ListUtils;
 
 import java.util.List;
 
@@ -40,8 +41,7 @@ public class SearchViewModel extends ViewModel {
         LiveData<List<User>> queried = Transformations.switchMap(query, userRepository::getUserByPhone);
         usersQueried = Transformations.map(queried, q -> {
             if (q != null) {
-                q.removeIf(user -> user.getUid().equals(uid));
-                return q;
+                return ListUtils.filter(q, user -> !user.getUid().equals(uid));
             }
             return null;
         });
@@ -0,0 +1,132 @@
+package com.djdjsn.emochat.utils;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class HybridLogicalClock {
+    // 메세지 아이디와 정렬에 쓰는 하이브리드 논리 시계 (HLC)
+    // 시각은 상위 48비트의 밀리초와 하위 16비트의 논리 카운터로 이루어진 long 값이며,
+    //   - 같은 기기에서는 기기 시계가 뒤로 가거나 같은 밀리초에 여러 번 호출해도 항상 증가한다
+    //   - 다른 기기에서 받은 메세지의 시각을 반영(observe)하므로, 이후에 보내는 메세지는 받은 메세지보다 뒤에 정렬된다
+    // 아이디는 시각 13자리 + 기기 구분 비트 5자리의 Crockford base32 문자열로, 문자열 순서가 시각 순서와 같다
+    //   "1629384756123-chatId-uid" (약 70자) -> "01HB4S7Q0G8004K2M9" (18자)
+
+    public static final int LOGICAL_BITS = 16;
+    public static final int NODE_BITS = 25;
+    public static final int ID_LENGTH = 18;
+    public static final long MAX_DRIFT_MILLIS = 5 * 60 * 1000;      // 이보다 앞선 다른 기기의 시각은 반영하지 않는다
+
+    private static final int TIME_CHARS = 13;      // 64비트 = 4비트 + 5비트 x 12
+    private static final int NODE_CHARS = 5;       // 25비트 = 5비트 x 5
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();   // ASCII 오름차순
+    private static final int[] VALUES = new int[128];
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = i;
+        }
+    }
+
+    private static final HybridLogicalClock INSTANCE = new HybridLogicalClock(
+            System::currentTimeMillis, new SecureRandom().nextInt(1 << NODE_BITS));
+
+    private final LongSupplier wallClock;
+    private final int node;                         // 프로세스마다 무작위로 정하는 기기 구분 비트
+    private final AtomicLong last = new AtomicLong();
+
+    public HybridLogicalClock(LongSupplier wallClock, int node) {
+        this.wallClock = wallClock;
+        this.node = node & ((1 << NODE_BITS) - 1);
+    }
+
+    public static HybridLogicalClock getInstance() {
+        return INSTANCE;
+    }
+
+    public long now() {
+
+        // 기기 시계와 마지막 시각 + 1 중 큰 값 (같은 밀리초 안에서는 논리 카운터가 증가한다)
+        while (true) {
+            long prev = last.get();
+            long next = Math.max(prev + 1, wallClock.getAsLong() << LOGICAL_BITS);
+            if (last.compareAndSet(prev, next)) {
+                return next;
+            }
+        }
+    }
+
+    public void observe(long time) {
+
+        // 다른 기기의 시각을 반영하여 다음 now() 가 그보다 커지도록 한다 (시계가 크게 앞선 기기는 무시)
+        if (millisOf(time) > wallClock.getAsLong() + MAX_DRIFT_MILLIS) {
+            return;
+        }
+        advance(time);
+    }
+
+    public void seed(String id, long created) {
+
+        // 재시작 전에 이 기기에서 만든 시각을 반영한다 (마지막 시각은 저장하지 않으므로 로컬 테이블에서 읽어 넘긴다)
+        // 기기 시계가 그 사이 뒤로 갔어도 이전 메세지보다 뒤에 정렬되도록 시계 차이를 따지지 않는다
+        long time = timeOf(id);
+        advance(time >= 0 ? time : created << LOGICAL_BITS);
+    }
+
+    private void advance(long time) {
+        while (true) {
+            long prev = last.get();
+            if (time <= prev || last.compareAndSet(prev, time)) {
+                return;
+            }
+        }
+    }
+
+    public void observe(String id, long created) {
+        // 이전 형식의 아이디는 작성 시각만 반영한다
+        long time = timeOf(id);
+        observe(time >= 0 ? time : created << LOGICAL_BITS);
+    }
+
+    public String idOf(long time) {
+
+        // 문자 배열 하나만 만들어 문자열로 바꾼다
+        char[] chars = new char[ID_LENGTH];
+        chars[0] = ALPHABET[(int) (time >>> 60)];
+        for (int i = 1; i < TIME_CHARS; i++) {
+            chars[i] = ALPHABET[(int) (time >>> (5 * (TIME_CHARS - 1 - i))) & 31];
+        }
+        for (int i = 0; i < NODE_CHARS; i++) {
+            chars[TIME_CHARS + i] = ALPHABET[(node >>> (5 * (NODE_CHARS - 1 - i))) & 31];
+        }
+        return new String(chars);
+    }
+
+    public static long timeOf(String id) {
+
+        // 아이디에서 시각을 읽는다 (이 시계로 만든 아이디가 아니면 -1)
+        if (id == null || id.length() != ID_LENGTH) {
+            return -1;
+        }
+        long time = 0;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            char ch = id.charAt(i);
+            int value = ch < VALUES.length ? VALUES[ch] : -1;
+            if (value < 0 || (i == 0 && value > 15)) {
+                return -1;
+            }
+            if (i < TIME_CHARS) {
+                time = (time << 5) | value;
+            }
+        }
+        return time;
+    }
+
+    public static long millisOf(long time) {
+        return time >>> LOGICAL_BITS;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.djdjsn.emochat.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+public class ProcessMemory {
+    // 앱 프로세스별 상주 메모리(RSS)를 /proc 에서 읽어 기록하는 클래스
+
+    private static final String TAG = "ProcessMemory";
+
+    public static long readRssKb(int pid) {
+
+        // /proc/<pid>/status 의 VmRSS 항목을 읽는다 (읽을 수 없으면 -1)
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/" + pid + "/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    public static void logAppProcesses(Context context) {
+
+        // 실행 중인 앱 프로세스마다 RSS 를 기록하고, 알림 감시 프로세스만 남았을 때와의 차이를 함께 기록한다
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        List<ActivityManager.RunningAppProcessInfo> processes = activityManager.getRunningAppProcesses();
+        if (processes == null) {
+            return;
+        }
+
+        long totalKb = 0;
+        long syncKb = 0;
+        for (ActivityManager.RunningAppProcessInfo process : processes) {
+            long rssKb = readRssKb(process.pid);
+            if (rssKb < 0) {
+                continue;
+            }
+            totalKb += rssKb;
+            if (process.processName.endsWith(":sync")) {
+                syncKb = rssKb;
+            }
+            Log.d(TAG, process.processName + " (" + process.pid + "): " + rssKb + " kB");
+        }
+        Log.d(TAG, "total: " + totalKb + " kB, sync only: " + syncKb + " kB, difference: " + (totalKb - syncKb) + " kB");
+    }
+
+}
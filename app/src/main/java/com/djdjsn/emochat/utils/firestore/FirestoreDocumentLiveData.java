@@ -0,0 +1,34 @@
+package com.djdjsn.emochat.utils.firestore;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.ListenerRegistration;
+
+public class FirestoreDocumentLiveData<T> extends FirestoreLiveData<T> {
+    // 문서 하나를 실시간으로 제공하는 LiveData
+
+    private final DocumentReference document;
+    private final Class<T> type;
+
+    public FirestoreDocumentLiveData(DocumentReference document, Class<T> type) {
+        this(document, type, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public FirestoreDocumentLiveData(DocumentReference document, Class<T> type, long debounceMillis) {
+        super(debounceMillis);
+        this.document = document;
+        this.type = type;
+    }
+
+    @Override
+    protected ListenerRegistration register() {
+        return document.addSnapshotListener((value, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                setValue(null);
+                return;
+            }
+            setValue(value != null ? value.toObject(type) : null);
+        });
+    }
+
+}
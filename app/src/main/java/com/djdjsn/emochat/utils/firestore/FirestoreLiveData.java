@@ -0,0 +1,73 @@
+package com.djdjsn.emochat.utils.firestore;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+public abstract class FirestoreLiveData<T> extends LiveData<T> {
+    // 활성 상태일 때만 스냅샷 리스너를 등록하는 LiveData
+    // 화면 회전처럼 잠깐 비활성화되는 경우를 위해 리스너 해제를 일정 시간 늦춘다
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 1000L;
+
+    public interface OnAttachStateChangeListener {
+        void onAttached();
+        void onDetached();
+    }
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final long debounceMillis;
+    private final Runnable unregister = this::unregister;
+    private ListenerRegistration registration;
+    private OnAttachStateChangeListener onAttachStateChangeListener;
+
+    protected FirestoreLiveData(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    protected abstract ListenerRegistration register();
+
+    public void setOnAttachStateChangeListener(OnAttachStateChangeListener listener) {
+        // 스냅샷 리스너가 등록되거나 해제되었을 때 호출된다
+        this.onAttachStateChangeListener = listener;
+    }
+
+    public boolean isAttached() {
+        return registration != null;
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        handler.removeCallbacks(unregister);
+        if (registration == null) {
+            registration = register();
+            if (onAttachStateChangeListener != null) {
+                onAttachStateChangeListener.onAttached();
+            }
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        handler.removeCallbacks(unregister);
+        handler.postDelayed(unregister, debounceMillis);
+    }
+
+    private void unregister() {
+        if (hasActiveObservers() || registration == null) {
+            return;
+        }
+        registration.remove();
+        registration = null;
+        if (onAttachStateChangeListener != null) {
+            onAttachStateChangeListener.onDetached();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.djdjsn.emochat.utils.firestore;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class FirestoreQueryLiveData<T> extends FirestoreLiveData<List<T>> {
+    // 쿼리 결과를 실시간으로 제공하는 LiveData (변경분만 적용)
+
+    private final Query query;
+    private final MetadataChanges metadataChanges;
+    private final SnapshotList<T> snapshotList;
+
+    public FirestoreQueryLiveData(Query query, Class<T> type) {
+        this(query, type, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public FirestoreQueryLiveData(Query query, Class<T> type, long debounceMillis) {
+        this(query, snapshot -> snapshot.toObject(type), MetadataChanges.EXCLUDE, debounceMillis);
+    }
+
+    public FirestoreQueryLiveData(Query query,
+                                  Function<DocumentSnapshot, T> converter,
+                                  MetadataChanges metadataChanges,
+                                  long debounceMillis) {
+        super(debounceMillis);
+        this.query = query;
+        this.metadataChanges = metadataChanges;
+        this.snapshotList = new SnapshotList<>(converter, metadataChanges);
+    }
+
+    @Override
+    protected ListenerRegistration register() {
+        // 새로 등록한 리스너의 첫 스냅샷은 모든 문서를 ADDED 로 전달하므로 목록을 비운다
+        snapshotList.clear();
+        return query.addSnapshotListener(metadataChanges, (value, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                snapshotList.clear();
+                setValue(null);
+                return;
+            }
+            if (value == null) {
+                setValue(null);
+                return;
+            }
+            if (getValue() != null && !snapshotList.hasChanges(value)) {
+                // 캐시 여부 등 쿼리 전체의 메타데이터만 바뀐 경우는 전달하지 않는다
+                return;
+            }
+            setValue(snapshotList.apply(value));
+        });
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.djdjsn.emochat.utils.firestore;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class FirestoreUtils {
+
+    public static final int WHERE_IN_LIMIT = 30;        // whereIn 쿼리 한 번에 넣을 수 있는 값의 최대 수 (Firestore 24.6 부터 30개)
+
+    public static List<List<String>> chunk(Collection<String> values) {
+
+        // 중복을 제거한 뒤 whereIn 쿼리 크기에 맞게 나눈다
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i += WHERE_IN_LIMIT) {
+            chunks.add(distinct.subList(i, Math.min(i + WHERE_IN_LIMIT, distinct.size())));
+        }
+        return chunks;
+    }
+
+    public static <T> LiveData<List<T>> getDocuments(CollectionReference collection,
+                                                     Collection<String> ids,
+                                                     Class<T> type) {
+
+        // 문서 아이디 목록을 whereIn 쿼리로 나누어 실시간으로 불러오고 결과를 합친다
+        // 묶음별 리스너는 결과를 구독하는 동안에만 등록된다
+        MediatorLiveData<List<T>> data = new MediatorLiveData<>();
+        if (ids == null || ids.isEmpty()) {
+            data.setValue(new ArrayList<>());
+            return data;
+        }
+
+        List<List<String>> chunks = chunk(ids);
+        List<List<T>> results = new ArrayList<>(Collections.nCopies(chunks.size(), null));
+        Set<Integer> failed = new HashSet<>();
+
+        for (int i = 0; i < chunks.size(); i++) {
+            int index = i;
+            Query query = collection.whereIn(FieldPath.documentId(), chunks.get(i));
+            data.addSource(new FirestoreQueryLiveData<>(query, type), result -> {
+                if (result == null) {
+                    failed.add(index);
+                    data.setValue(null);
+                    return;
+                }
+                failed.remove(index);
+                results.set(index, result);
+
+                // 모든 묶음의 결과가 도착했을 때만 합친 결과를 내보낸다
+                if (!failed.isEmpty() || results.contains(null)) {
+                    return;
+                }
+                List<T> merged = new ArrayList<>();
+                for (List<T> _result : results) {
+                    merged.addAll(_result);
+                }
+                data.setValue(Collections.unmodifiableList(merged));
+            });
+        }
+
+        return data;
+    }
+
+}
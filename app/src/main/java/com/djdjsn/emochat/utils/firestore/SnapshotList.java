@@ -0,0 +1,63 @@
+package com.djdjsn.emochat.utils.firestore;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+public class SnapshotList<T> {
+    // 쿼리 스냅샷의 변경분(DocumentChange)만 적용하여 목록을 유지하는 클래스
+    // 변경되지 않은 문서는 기존 객체를 그대로 재사용하므로 DiffUtil 비교가 동일성 검사로 끝난다
+
+    private final Function<DocumentSnapshot, T> converter;
+    private final MetadataChanges metadataChanges;
+    private final List<T> items = new ArrayList<>();
+
+    public SnapshotList(Class<T> type) {
+        this(snapshot -> snapshot.toObject(type), MetadataChanges.EXCLUDE);
+    }
+
+    public SnapshotList(Function<DocumentSnapshot, T> converter, MetadataChanges metadataChanges) {
+        // 메타데이터 변경을 포함하면 서버 반영 여부(hasPendingWrites)만 바뀐 문서도 MODIFIED 로 적용된다
+        this.converter = converter;
+        this.metadataChanges = metadataChanges;
+    }
+
+    public boolean hasChanges(QuerySnapshot snapshot) {
+        return !snapshot.getDocumentChanges(metadataChanges).isEmpty();
+    }
+
+    public List<T> apply(QuerySnapshot snapshot) {
+
+        for (DocumentChange change : snapshot.getDocumentChanges(metadataChanges)) {
+            switch (change.getType()) {
+                case ADDED:
+                    items.add(change.getNewIndex(), converter.apply(change.getDocument()));
+                    break;
+                case MODIFIED: {
+                    T oldItem = items.remove(change.getOldIndex());
+                    T newItem = converter.apply(change.getDocument());
+                    // 내용이 같다면 기존 객체를 유지한다
+                    items.add(change.getNewIndex(), newItem.equals(oldItem) ? oldItem : newItem);
+                    break;
+                }
+                case REMOVED:
+                    items.remove(change.getOldIndex());
+                    break;
+            }
+        }
+
+        return Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    public void clear() {
+        // 리스너 오류 등으로 스냅샷이 끊긴 경우 다음 스냅샷을 처음부터 적용할 수 있도록 비운다
+        items.clear();
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.djdjsn.emochat.utils.firestore;
+
+import androidx.lifecycle.LiveData;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class SnapshotListenerRegistry {
+    // 같은 문서 경로나 쿼리에 대한 스냅샷 리스너를 하나만 등록하여 모든 구독자가 공유하도록 하는 클래스
+    // 구독자가 모두 떠나면 유예시간 후에 리스너를 해제하고, 늦게 구독한 쪽에는 마지막 값을 다시 전달한다
+    // LiveData 는 약한 참조로 보관하여, 리스너를 해제한 뒤에도 누군가 들고 있는 동안에는 같은 인스턴스를 돌려준다
+    // (해제된 인스턴스를 다시 구독할 때 같은 경로의 새 인스턴스가 따로 리스너를 등록하지 않도록 한다)
+
+    public static final long DEFAULT_IDLE_GRACE_MILLIS = 5000L;
+
+    private final Map<List<Object>, WeakReference<FirestoreLiveData<?>>> snapshots = new HashMap<>();
+    private long idleGraceMillis = DEFAULT_IDLE_GRACE_MILLIS;
+
+    @Inject
+    public SnapshotListenerRegistry() {
+    }
+
+    public void setIdleGraceMillis(long idleGraceMillis) {
+        this.idleGraceMillis = idleGraceMillis;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> LiveData<T> document(DocumentReference document, Class<T> type) {
+
+        List<Object> key = Arrays.asList(document, type);
+        FirestoreLiveData<T> snapshot = (FirestoreLiveData<T>) find(key);
+        if (snapshot == null) {
+            snapshot = new FirestoreDocumentLiveData<>(document, type, idleGraceMillis);
+            track(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> LiveData<List<T>> query(Query query, Class<T> type) {
+
+        List<Object> key = Arrays.asList(query, type);
+        FirestoreLiveData<List<T>> snapshot = (FirestoreLiveData<List<T>>) find(key);
+        if (snapshot == null) {
+            snapshot = new FirestoreQueryLiveData<>(query, type, idleGraceMillis);
+            track(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> LiveData<List<T>> queryWithPendingWrites(Query query, Function<DocumentSnapshot, T> converter, Class<T> type) {
+
+        // 로컬에서 쓴 문서가 서버에 반영되는 시점까지 전달하는 쿼리 (메타데이터 변경 포함)
+        List<Object> key = Arrays.asList(query, type, MetadataChanges.INCLUDE);
+        FirestoreLiveData<List<T>> snapshot = (FirestoreLiveData<List<T>>) find(key);
+        if (snapshot == null) {
+            snapshot = new FirestoreQueryLiveData<>(query, converter, MetadataChanges.INCLUDE, idleGraceMillis);
+            track(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    private FirestoreLiveData<?> find(List<Object> key) {
+        WeakReference<FirestoreLiveData<?>> reference = snapshots.get(key);
+        return reference != null ? reference.get() : null;
+    }
+
+    private void track(List<Object> key, FirestoreLiveData<?> snapshot) {
+
+        // 참조가 사라진 항목을 정리한 뒤 등록한다 (사라진 LiveData 는 리스너도 이미 해제되어 있다)
+        Iterator<WeakReference<FirestoreLiveData<?>>> iterator = snapshots.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+        snapshots.put(key, new WeakReference<>(snapshot));
+    }
+
+}
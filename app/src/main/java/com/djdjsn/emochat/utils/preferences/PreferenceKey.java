@@ -0,0 +1,75 @@
+package com.djdjsn.emochat.utils.preferences;
+
+import android.content.SharedPreferences;
+
+import java.util.Objects;
+
+public class PreferenceKey<T> {
+    // PreferenceStore 에 저장하는 값의 이름, 자료형, 기본값을 함께 나타내는 키
+
+    private final String name;
+    private final Class<T> type;
+    private final T defValue;
+
+    private PreferenceKey(String name, Class<T> type, T defValue) {
+        this.name = name;
+        this.type = type;
+        this.defValue = defValue;
+    }
+
+    public static PreferenceKey<String> ofString(String name, String defValue) {
+        return new PreferenceKey<>(name, String.class, defValue);
+    }
+
+    public static PreferenceKey<Long> ofLong(String name, long defValue) {
+        return new PreferenceKey<>(name, Long.class, defValue);
+    }
+
+    public static PreferenceKey<Integer> ofInteger(String name, int defValue) {
+        return new PreferenceKey<>(name, Integer.class, defValue);
+    }
+
+    public static PreferenceKey<Boolean> ofBoolean(String name, boolean defValue) {
+        return new PreferenceKey<>(name, Boolean.class, defValue);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public T getDefValue() {
+        return defValue;
+    }
+
+    T cast(Object value) {
+        // 저장된 값의 자료형이 다르면 기본값을 사용한다
+        return type.isInstance(value) ? type.cast(value) : defValue;
+    }
+
+    void write(SharedPreferences.Editor editor, Object value) {
+        if (value == null) {
+            editor.remove(name);
+        } else if (type == String.class) {
+            editor.putString(name, (String) value);
+        } else if (type == Long.class) {
+            editor.putLong(name, (Long) value);
+        } else if (type == Integer.class) {
+            editor.putInt(name, (Integer) value);
+        } else if (type == Boolean.class) {
+            editor.putBoolean(name, (Boolean) value);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PreferenceKey<?> that = (PreferenceKey<?>) o;
+        return name.equals(that.name) && type.equals(that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, type);
+    }
+}
@@ -0,0 +1,207 @@
+package com.djdjsn.emochat.utils.preferences;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class PreferenceStore {
+    // 앱 시작 시 백그라운드에서 Shared Preferences 를 한 번 읽어 메모리에 보관하고,
+    // 값을 바꾸면 메모리에 바로 반영한 뒤 잠시 모아서 백그라운드에서 한 번에 저장하는 클래스
+
+    public static final long FLUSH_DELAY_MILLIS = 100;      // 저장을 모으는 시간
+
+    private class PreferenceLiveData<T> extends LiveData<T> {
+        // 키 하나의 값과 연동되는 LiveData (값이 바뀔 때만 다시 읽는다)
+
+        private final PreferenceKey<T> key;
+
+        PreferenceLiveData(PreferenceKey<T> key) {
+            this.key = key;
+        }
+
+        @Override
+        protected void onActive() {
+            super.onActive();
+            if (isLoaded()) {
+                refresh();
+            }
+        }
+
+        void refresh() {
+            T value = key.cast(values.get(key.getName()));
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                setValue(value);
+            } else {
+                postValue(value);
+            }
+        }
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Map<String, PreferenceKey<?>> dirtyKeys = new LinkedHashMap<>();     // 저장 대기 중인 키
+    private final Map<String, PreferenceLiveData<?>> liveData = new HashMap<>();
+    private SharedPreferences preferences;
+    private boolean isFlushScheduled;
+    private boolean isClosed;
+
+    public PreferenceStore(Application application) {
+        this(application, null);
+    }
+
+    public PreferenceStore(Application application, String fileName) {
+
+        // 생성 즉시 백그라운드에서 읽기 시작한다 (파일 이름이 없으면 기본 프레퍼런스 파일)
+        executor.execute(() -> {
+            preferences = fileName != null
+                    ? application.getSharedPreferences(fileName, Context.MODE_PRIVATE)
+                    : PreferenceManager.getDefaultSharedPreferences(application);
+            Map<String, ?> all = preferences.getAll();
+            synchronized (this) {
+                // 읽기가 끝나기 전에 put() 으로 바꾼 값은 디스크의 값으로 덮어쓰지 않는다
+                for (Map.Entry<String, ?> entry : all.entrySet()) {
+                    if (entry.getValue() != null && !dirtyKeys.containsKey(entry.getKey())) {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            loaded.countDown();
+            handler.post(this::refreshAll);
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    public void whenLoaded(Runnable runnable) {
+
+        // 읽기가 끝난 뒤 메인 스레드에서 실행한다 (이미 읽었다면 바로 실행)
+        // 메인 스레드에서 get() 을 호출하기 전에 사용하면 디스크를 기다리지 않는다
+        if (isLoaded()) {
+            runnable.run();
+        } else {
+            executor.execute(() -> handler.post(runnable));
+        }
+    }
+
+    public <T> T get(PreferenceKey<T> key) {
+        // 읽기가 끝나기 전이면 기다린다 (메인 스레드에서는 whenLoaded() 또는 getLiveData() 를 사용한다)
+        awaitLoaded();
+        return key.cast(values.get(key.getName()));
+    }
+
+    public <T> void put(PreferenceKey<T> key, T value) {
+
+        // 읽기가 끝나기 전에도 기다리지 않고 메모리에 반영한다
+        synchronized (this) {
+            Object oldValue = value != null ? values.put(key.getName(), value) : values.remove(key.getName());
+            if (isLoaded() && (value == null ? oldValue == null : value.equals(oldValue))) {
+                return;
+            }
+            dirtyKeys.put(key.getName(), key);
+            if (!isFlushScheduled && !isClosed) {
+                isFlushScheduled = true;
+                executor.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        PreferenceLiveData<?> data;
+        synchronized (liveData) {
+            data = liveData.get(key.getName());
+        }
+        if (data != null) {
+            data.refresh();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> LiveData<T> getLiveData(PreferenceKey<T> key) {
+
+        // 같은 키는 하나의 LiveData 를 공유한다
+        synchronized (liveData) {
+            PreferenceLiveData<T> data = (PreferenceLiveData<T>) liveData.get(key.getName());
+            if (data == null) {
+                data = new PreferenceLiveData<>(key);
+                liveData.put(key.getName(), data);
+            }
+            return data;
+        }
+    }
+
+    public void close() {
+
+        // 저장 대기 중인 값을 저장한 뒤 스레드를 종료한다 (이후의 put() 은 메모리에만 반영된다)
+        // 프로세스와 수명이 같은 저장소는 닫지 않고, 서비스처럼 먼저 끝나는 쪽에서 만든 저장소만 닫는다
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        }
+        executor.execute(this::flush);
+        executor.shutdown();
+    }
+
+    private void awaitLoaded() {
+
+        // 읽기가 끝나기 전에 접근한 경우에만 기다린다 (앱 시작 직후 한 번)
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() {
+
+        List<PreferenceKey<?>> keys;
+        synchronized (this) {
+            isFlushScheduled = false;
+            keys = new ArrayList<>(dirtyKeys.values());
+            dirtyKeys.clear();
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        SharedPreferences.Editor editor = preferences.edit();
+        for (PreferenceKey<?> key : keys) {
+            key.write(editor, values.get(key.getName()));
+        }
+        editor.commit();
+    }
+
+    private void refreshAll() {
+        List<PreferenceLiveData<?>> list;
+        synchronized (liveData) {
+            list = new ArrayList<>(liveData.values());
+        }
+        for (PreferenceLiveData<?> data : list) {
+            if (data.hasActiveObservers()) {
+                data.refresh();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.djdjsn.emochat;
+
+import com.djdjsn.emochat.utils.HybridLogicalClock;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 메세지 아이디 생성기(하이브리드 논리 시계)의 순서 보장과 아이디 형식 테스트,
+ * 기존 문자열 연결 방식과의 간단한 성능 비교 (수동 실행)
+ */
+public class HybridLogicalClockTest {
+
+    private static final long WALL_MILLIS = 1_700_000_000_000L;
+
+    @Test
+    public void ids_increaseWithinSameMillisecond() {
+        HybridLogicalClock clock = new HybridLogicalClock(() -> WALL_MILLIS, 7);
+        Set<String> ids = new HashSet<>();
+        String prev = "";
+        for (int i = 0; i < 10_000; i++) {
+            long time = clock.now();
+            String id = clock.idOf(time);
+            assertEquals(HybridLogicalClock.ID_LENGTH, id.length());
+            assertTrue(id.compareTo(prev) > 0);
+            assertTrue(ids.add(id));
+            prev = id;
+        }
+    }
+
+    @Test
+    public void ids_increaseWhenWallClockGoesBackwards() {
+        long[] wall = {WALL_MILLIS};
+        HybridLogicalClock clock = new HybridLogicalClock(() -> wall[0], 7);
+        long first = clock.now();
+        wall[0] -= 60_000;
+        long second = clock.now();
+        assertTrue(second > first);
+        assertTrue(clock.idOf(second).compareTo(clock.idOf(first)) > 0);
+        assertEquals(WALL_MILLIS, HybridLogicalClock.millisOf(second));
+    }
+
+    @Test
+    public void observe_ordersAfterRemoteTime() {
+        // 시계가 30초 늦은 기기도 받은 메세지보다 뒤의 시각을 만든다
+        HybridLogicalClock sender = new HybridLogicalClock(() -> WALL_MILLIS, 1);
+        HybridLogicalClock receiver = new HybridLogicalClock(() -> WALL_MILLIS - 30_000, 2);
+        long sent = sender.now();
+        receiver.observe(sender.idOf(sent), HybridLogicalClock.millisOf(sent));
+        long reply = receiver.now();
+        assertTrue(reply > sent);
+        assertTrue(receiver.idOf(reply).compareTo(sender.idOf(sent)) > 0);
+    }
+
+    @Test
+    public void observe_ignoresFarFutureTime() {
+        HybridLogicalClock clock = new HybridLogicalClock(() -> WALL_MILLIS, 1);
+        long future = (WALL_MILLIS + HybridLogicalClock.MAX_DRIFT_MILLIS + 1) << HybridLogicalClock.LOGICAL_BITS;
+        clock.observe(future);
+        assertEquals(WALL_MILLIS, HybridLogicalClock.millisOf(clock.now()));
+    }
+
+    @Test
+    public void observe_usesCreatedForLegacyId() {
+        HybridLogicalClock clock = new HybridLogicalClock(() -> WALL_MILLIS, 1);
+        clock.observe(WALL_MILLIS + 1000 + "-chat-uid", WALL_MILLIS + 1000);
+        assertEquals(WALL_MILLIS + 1000, HybridLogicalClock.millisOf(clock.now()));
+    }
+
+    @Test
+    public void seed_ordersAfterOwnHistoryWhenClockIsBehind() {
+        // 재시작한 기기의 시계가 1시간 늦어도 이전에 보낸 메세지보다 뒤의 아이디를 만든다
+        HybridLogicalClock before = new HybridLogicalClock(() -> WALL_MILLIS, 1);
+        long sent = before.now();
+        HybridLogicalClock restarted = new HybridLogicalClock(() -> WALL_MILLIS - 3_600_000, 2);
+        restarted.seed(before.idOf(sent), HybridLogicalClock.millisOf(sent));
+        long next = restarted.now();
+        assertTrue(next > sent);
+        assertTrue(restarted.idOf(next).compareTo(before.idOf(sent)) > 0);
+    }
+
+    @Test
+    public void timeOf_readsBackTime() {
+        HybridLogicalClock clock = new HybridLogicalClock(() -> WALL_MILLIS, (1 << HybridLogicalClock.NODE_BITS) - 1);
+        long time = clock.now();
+        assertEquals(time, HybridLogicalClock.timeOf(clock.idOf(time)));
+        assertEquals(-1, HybridLogicalClock.timeOf("1700000000000-chat-uid"));
+        assertEquals(-1, HybridLogicalClock.timeOf(null));
+    }
+
+    @Test
+    @Ignore("성능 비교는 필요할 때 수동으로 실행한다")
+    public void benchmark_againstStringConcatenation() {
+
+        // 기존 방식: created + "-" + chatId + "-" + uid
+        String chatId = "2b8fQk3XbWfTzY0c1dLrVn7pHs92-9XhU4mQe0aTzR5cYbW1kLpN3oDf2";
+        String uid = "2b8fQk3XbWfTzY0c1dLrVn7pHs92";
+        HybridLogicalClock clock = new HybridLogicalClock(System::currentTimeMillis, 7);
+        int iterations = 1_000_000;
+
+        long sink = 0;
+        long concatNanos = 0;
+        long hlcNanos = 0;
+        for (int round = 0; round < 3; round++) {       // 앞의 두 번은 JIT 준비
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                long created = System.currentTimeMillis();
+                String id = created + "-" + chatId + "-" + uid;
+                sink += id.length();
+            }
+            concatNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                String id = clock.idOf(clock.now());
+                sink += id.length();
+            }
+            hlcNanos = System.nanoTime() - start;
+        }
+        assertTrue(sink > 0);
+        // 기존 방식보다 크게 느려지지 않아야 한다 (실패하면 메세지에 측정값이 나온다)
+        assertTrue("concat: " + concatNanos / iterations + " ns/op, hlc: " + hlcNanos / iterations + " ns/op",
+                hlcNanos <= concatNanos * 2);
+    }
+}
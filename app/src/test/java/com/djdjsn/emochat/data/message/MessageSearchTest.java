@@ -0,0 +1,94 @@
+package com.djdjsn.emochat.data.message;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * 메세지 검색의 토큰 생성(한글 bigram), 검색식의 접두어 처리, matchinfo 기반 BM25 점수 테스트
+ */
+public class MessageSearchTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void tokenize_splitsHangulIntoBigrams() {
+        assertEquals("친구 구에 에게", MessageSearch.tokenize("친구에게"));
+        assertEquals("안녕", MessageSearch.tokenize("안녕"));
+        assertEquals("나", MessageSearch.tokenize("나"));
+    }
+
+    @Test
+    public void tokenize_separatesHangulFromOtherRuns() {
+        assertEquals("친구 구에 에게 hello", MessageSearch.tokenize("친구에게 Hello!"));
+        assertEquals("abc 친구 123", MessageSearch.tokenize("abc친구123"));
+        assertEquals("", MessageSearch.tokenize(null));
+    }
+
+    @Test
+    public void tokenize_dropsDuplicateTerms() {
+        assertEquals("하하", MessageSearch.tokenize("하하하"));
+    }
+
+    @Test
+    public void matchQuery_prefixesOnlyLastNonHangulWord() {
+        assertEquals("hello wor*", MessageSearch.matchQueryOf("hello wor"));
+        assertEquals("친구 abc*", MessageSearch.matchQueryOf("친구 abc"));
+        assertEquals("hello 친구", MessageSearch.matchQueryOf("hello 친구"));
+    }
+
+    @Test
+    public void matchQuery_prefixesSingleHangulAnywhere() {
+        assertEquals("나* 친구", MessageSearch.matchQueryOf("나 친구"));
+        assertEquals("친구 나*", MessageSearch.matchQueryOf("친구 나"));
+    }
+
+    @Test
+    public void matchQuery_returnsNullWithoutTerms() {
+        assertNull(MessageSearch.matchQueryOf(null));
+        assertNull(MessageSearch.matchQueryOf("  ?! "));
+    }
+
+    @Test
+    public void bm25_scoresSinglePhrase() {
+        // 10개 중 3개의 메세지에 있는 토큰이 평균 길이의 메세지에 2번 나온 경우
+        byte[] matchInfo = matchInfoOf(1, 1, 10, 5, 5, 2, 4, 3);
+        double idf = Math.log(1 + (10 - 3 + 0.5) / (3 + 0.5));
+        double expected = idf * 2 * (1.2 + 1) / (2 + 1.2);
+        assertEquals(expected, MessageSearch.bm25(matchInfo), DELTA);
+    }
+
+    @Test
+    public void bm25_ranksMoreHitsHigher() {
+        double once = MessageSearch.bm25(matchInfoOf(1, 1, 10, 5, 5, 1, 4, 3));
+        double twice = MessageSearch.bm25(matchInfoOf(1, 1, 10, 5, 5, 2, 4, 3));
+        assertTrue(twice > once);
+        assertEquals(0, MessageSearch.bm25(matchInfoOf(1, 1, 10, 5, 5, 0, 4, 3)), DELTA);
+    }
+
+    @Test
+    public void bm25_ignoresTruncatedMatchInfo() {
+        assertEquals(0, MessageSearch.bm25(null), DELTA);
+        assertEquals(0, MessageSearch.bm25(new byte[8]), DELTA);
+        // 헤더만 있고 a, l, x 값이 빠진 경우
+        assertEquals(0, MessageSearch.bm25(matchInfoOf(1, 1, 10)), DELTA);
+        // x 값이 하나 모자란 경우
+        assertEquals(0, MessageSearch.bm25(matchInfoOf(1, 1, 10, 5, 5, 2, 4)), DELTA);
+        // 개수가 음수이거나 너무 커서 넘치는 경우
+        assertEquals(0, MessageSearch.bm25(matchInfoOf(-1, 1, 10, 5, 5, 2, 4, 3)), DELTA);
+        assertEquals(0, MessageSearch.bm25(matchInfoOf(Integer.MAX_VALUE, Integer.MAX_VALUE, 10)), DELTA);
+    }
+
+    private static byte[] matchInfoOf(int... values) {
+        // SQLite 와 같이 기기의 바이트 순서로 32비트 정수를 이어 붙인다
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+}